@@ -0,0 +1,100 @@
+package com.gardenevery.tag;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Deterministic tag layout for the benchmarks, shaped like a modpack's item tags without needing Minecraft
+ */
+final class SyntheticTags {
+
+    final String[] tagNames;
+    final Key[] keys;
+    final int[][] keyTags;
+
+    SyntheticTags(int tagCount, int keysPerTag, int tagsPerKey) {
+        this.tagNames = new String[tagCount];
+        for (int i = 0; i < tagCount; i++) {
+            tagNames[i] = "mod" + (i % 300) + ":tag_" + i;
+        }
+
+        int keyCount = Math.max(1, tagCount * keysPerTag / tagsPerKey);
+        this.keys = new Key[keyCount];
+        this.keyTags = new int[keyCount][];
+        var random = new Random(42L);
+
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = new Key(i / 16, i % 16);
+            keyTags[i] = new int[tagsPerKey];
+            int first = (int) ((long) i * tagsPerKey / keysPerTag) % tagCount;
+            for (int j = 0; j < tagsPerKey; j++) {
+                keyTags[i][j] = j == 0 ? first : random.nextInt(tagCount);
+            }
+        }
+    }
+
+    int associations() {
+        return keys.length * keyTags[0].length;
+    }
+
+    Tag<Object> load(boolean freeze) {
+        var tag = new Tag<Object>();
+        for (int i = 0; i < keys.length; i++) {
+            for (int tagIndex : keyTags[i]) {
+                tag.createTag(tagNames[tagIndex], keys[i]);
+            }
+        }
+
+        if (freeze) {
+            tag.freeze();
+        }
+        return tag;
+    }
+
+    Map<String, List<Object>> byTag() {
+        var entries = new Object2ReferenceOpenHashMap<String, List<Object>>(tagNames.length);
+        for (int i = 0; i < keys.length; i++) {
+            for (int tagIndex : keyTags[i]) {
+                var members = entries.get(tagNames[tagIndex]);
+                if (members == null) {
+                    members = new ObjectArrayList<>();
+                    entries.put(tagNames[tagIndex], members);
+                }
+                members.add(keys[i]);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Stand-in for {@link ItemKey}: an identity plus metadata, compared by value
+     */
+    static final class Key {
+        final int id;
+        final int meta;
+
+        Key(int id, int meta) {
+            this.id = id;
+            this.meta = meta;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            var other = (Key) o;
+            return other.id == id && other.meta == meta;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + meta;
+        }
+    }
+}
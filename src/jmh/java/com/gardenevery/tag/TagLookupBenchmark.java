@@ -0,0 +1,114 @@
+package com.gardenevery.tag;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagLookupBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000", "10000"})
+    public int tagCount;
+
+    @Param({"8", "64"})
+    public int keysPerTag;
+
+    @Param({"1", "4"})
+    public int tagsPerKey;
+
+    @Param({"true", "false"})
+    public boolean frozen;
+
+    private Tag<Object> tag;
+    private Object[] probeKeys;
+    private String[] probeTags;
+    private Set<String>[] probeTagSets;
+    private int cursor;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        var data = new SyntheticTags(tagCount, keysPerTag, tagsPerKey);
+        tag = data.load(frozen);
+        probeKeys = new Object[PROBES];
+        probeTags = new String[PROBES];
+        probeTagSets = new Set[PROBES];
+        var random = new Random(7L);
+
+        for (int i = 0; i < PROBES; i++) {
+            int keyIndex = random.nextInt(data.keys.length);
+            probeKeys[i] = data.keys[keyIndex];
+            // roughly half of the probes hit
+            int tagIndex = random.nextBoolean() ? data.keyTags[keyIndex][0] : random.nextInt(tagCount);
+            probeTags[i] = data.tagNames[tagIndex];
+
+            var names = new ObjectOpenHashSet<String>();
+            for (int j = 0; j < 4; j++) {
+                names.add(data.tagNames[random.nextInt(tagCount)]);
+            }
+            probeTagSets[i] = names;
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (PROBES - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public boolean hasTag() {
+        int i = next();
+        return tag.hasTag(probeKeys[i], probeTags[i]);
+    }
+
+    @Benchmark
+    public boolean hasAnyTag() {
+        int i = next();
+        return tag.hasAnyTag(probeKeys[i], probeTagSets[i]);
+    }
+
+    @Benchmark
+    public void getTag(Blackhole blackhole) {
+        for (var name : tag.getTag(probeKeys[next()])) {
+            blackhole.consume(name);
+        }
+    }
+
+    /**
+     * Mirrors {@link TagHelper#itemElement(String)}: materialize one element per key of a tag
+     */
+    @Benchmark
+    public Set<Object> itemElement() {
+        var keys = tag.getKey(probeTags[next()]);
+        Set<Object> result = new ObjectOpenHashSet<>();
+
+        for (var key : keys) {
+            var synthetic = (SyntheticTags.Key) key;
+            result.add(new SyntheticTags.Key(synthetic.id, synthetic.meta));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+}
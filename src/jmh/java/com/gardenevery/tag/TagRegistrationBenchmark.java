@@ -0,0 +1,93 @@
+package com.gardenevery.tag;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Registration-phase costs at Ore Dictionary scale (2000 tags x 20 keys is ~40k associations)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagRegistrationBenchmark {
+
+    @Param({"2000", "10000"})
+    public int tagCount;
+
+    @Param({"20"})
+    public int keysPerTag;
+
+    @Param({"1", "2"})
+    public int tagsPerKey;
+
+    private SyntheticTags data;
+    private Map<String, List<Object>> byTag;
+    private Set<String> removedTags;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        data = new SyntheticTags(tagCount, keysPerTag, tagsPerKey);
+        byTag = data.byTag();
+        removedTags = new ObjectOpenHashSet<>();
+        for (int i = 0; i < tagCount; i += 10) {
+            removedTags.add(data.tagNames[i]);
+        }
+    }
+
+    @Benchmark
+    public Tag<Object> createTag() {
+        return data.load(false);
+    }
+
+    @Benchmark
+    public Tag<Object> bulkLoad() {
+        var tag = new Tag<Object>();
+        tag.addAll(byTag);
+        return tag;
+    }
+
+    @Benchmark
+    public Tag<Object> freeze(LoadedStore store) {
+        store.tag.freeze();
+        return store.tag;
+    }
+
+    @Benchmark
+    public Tag<Object> removeTagSet(LoadedStore store) {
+        store.tag.removeTag(removedTags);
+        return store.tag;
+    }
+
+    /**
+     * A freshly loaded, still mutable store for benchmarks that consume it
+     */
+    @State(Scope.Thread)
+    public static class LoadedStore {
+        private Tag<Object> tag;
+
+        @Setup(Level.Invocation)
+        public void load(TagRegistrationBenchmark benchmark) {
+            tag = benchmark.data.load(false);
+        }
+    }
+}
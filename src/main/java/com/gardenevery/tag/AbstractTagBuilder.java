@@ -7,8 +7,10 @@ import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraftforge.fluids.Fluid;
 import net.minecraftforge.fluids.FluidStack;
 
@@ -69,6 +71,21 @@ abstract class AbstractTagBuilder {
         return validNames;
     }
 
+    /**
+     * Record that every key of {@code nestedTag} belongs to the given tags as well, resolved when the stores are frozen
+     */
+    static void includeTag(TagType type, String tagName, @Nullable String nestedTag) {
+        includeTag(type, Collections.singleton(tagName), nestedTag);
+    }
+
+    static void includeTag(TagType type, Set<String> tagNames, @Nullable String nestedTag) {
+        if (!validateTagName(nestedTag)) {
+            return;
+        }
+
+        TagStores.live().includeTag(type, tagNames, nestedTag);
+    }
+
     private static void logRegistrationClosed() {
         LOGGER.warn("Tag registration is closed after FMLLoadCompleteEvent.");
     }
@@ -77,30 +94,40 @@ abstract class AbstractTagBuilder {
         ItemAddable add(Item item);
         ItemAddable add(Item item, int metadata);
         ItemAddable add(@Nullable ItemStack stack);
+        ItemAddable addTag(@Nullable String nestedTag);
     }
 
     public interface FluidAddable {
         FluidAddable add(Fluid fluid);
         FluidAddable add(@Nullable FluidStack stack);
+        FluidAddable addTag(@Nullable String nestedTag);
     }
 
     public interface BlockAddable {
         BlockAddable add(@Nullable Block block);
+        BlockAddable add(@Nullable IBlockState blockState);
+        BlockAddable add(@Nullable Class<? extends TileEntity> tileEntity);
+        BlockAddable addTag(@Nullable String nestedTag);
     }
 
     public interface MultiItemAddable {
         MultiItemAddable add(Item item);
         MultiItemAddable add(Item item, int metadata);
         MultiItemAddable add(@Nullable ItemStack stack);
+        MultiItemAddable addTag(@Nullable String nestedTag);
     }
 
     public interface MultiFluidAddable {
         MultiFluidAddable add(Fluid fluid);
         MultiFluidAddable add(@Nullable FluidStack stack);
+        MultiFluidAddable addTag(@Nullable String nestedTag);
     }
 
     public interface MultiBlockAddable {
         MultiBlockAddable add(@Nullable Block block);
+        MultiBlockAddable add(@Nullable IBlockState blockState);
+        MultiBlockAddable add(@Nullable Class<? extends TileEntity> tileEntity);
+        MultiBlockAddable addTag(@Nullable String nestedTag);
     }
 
     public interface ItemRemoveKey {
@@ -116,6 +143,8 @@ abstract class AbstractTagBuilder {
 
     public interface BlockRemoveKey {
         BlockRemoveKey removeKey(@Nullable Block block);
+        BlockRemoveKey removeKey(@Nullable IBlockState blockState);
+        BlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity);
     }
 
     public interface MultiItemRemoveKey {
@@ -131,12 +160,15 @@ abstract class AbstractTagBuilder {
 
     public interface MultiBlockRemoveKey {
         MultiBlockRemoveKey removeKey(@Nullable Block block);
+        MultiBlockRemoveKey removeKey(@Nullable IBlockState blockState);
+        MultiBlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity);
     }
 
     public interface ItemInitialState {
         ItemAddable add(Item item);
         ItemAddable add(Item item, int metadata);
         ItemAddable add(@Nullable ItemStack stack);
+        ItemAddable addTag(@Nullable String nestedTag);
         void removeTag();
         ItemRemoveKey removeKey(Item item);
         ItemRemoveKey removeKey(Item item, int metadata);
@@ -146,6 +178,7 @@ abstract class AbstractTagBuilder {
     public interface FluidInitialState {
         FluidAddable add(Fluid fluid);
         FluidAddable add(@Nullable FluidStack stack);
+        FluidAddable addTag(@Nullable String nestedTag);
         void removeTag();
         FluidRemoveKey removeKey(Fluid fluid);
         FluidRemoveKey removeKey(@Nullable FluidStack stack);
@@ -153,14 +186,20 @@ abstract class AbstractTagBuilder {
 
     public interface BlockInitialState {
         BlockAddable add(@Nullable Block block);
+        BlockAddable add(@Nullable IBlockState blockState);
+        BlockAddable add(@Nullable Class<? extends TileEntity> tileEntity);
+        BlockAddable addTag(@Nullable String nestedTag);
         void removeTag();
         BlockRemoveKey removeKey(@Nullable Block block);
+        BlockRemoveKey removeKey(@Nullable IBlockState blockState);
+        BlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity);
     }
 
     public interface MultiItemInitialState {
         MultiItemAddable add(Item item);
         MultiItemAddable add(Item item, int metadata);
         MultiItemAddable add(@Nullable ItemStack stack);
+        MultiItemAddable addTag(@Nullable String nestedTag);
         void removeTag();
         MultiItemRemoveKey removeKey(Item item);
         MultiItemRemoveKey removeKey(Item item, int metadata);
@@ -170,6 +209,7 @@ abstract class AbstractTagBuilder {
     public interface MultiFluidInitialState {
         MultiFluidAddable add(Fluid fluid);
         MultiFluidAddable add(@Nullable FluidStack stack);
+        MultiFluidAddable addTag(@Nullable String nestedTag);
         void removeTag();
         MultiFluidRemoveKey removeKey(Fluid fluid);
         MultiFluidRemoveKey removeKey(@Nullable FluidStack stack);
@@ -177,8 +217,13 @@ abstract class AbstractTagBuilder {
 
     public interface MultiBlockInitialState {
         MultiBlockAddable add(@Nullable Block block);
+        MultiBlockAddable add(@Nullable IBlockState blockState);
+        MultiBlockAddable add(@Nullable Class<? extends TileEntity> tileEntity);
+        MultiBlockAddable addTag(@Nullable String nestedTag);
         void removeTag();
         MultiBlockRemoveKey removeKey(@Nullable Block block);
+        MultiBlockRemoveKey removeKey(@Nullable IBlockState blockState);
+        MultiBlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity);
     }
 
     public interface Completed {}
@@ -197,11 +242,14 @@ abstract class AbstractTagBuilder {
         public class InitialState implements ItemInitialState {
             @Override
             public ItemAddable add(@Nullable ItemStack stack) {
+                return add(ItemKey.toKey(stack));
+            }
+
+            private ItemAddable add(@Nullable ItemKey key) {
                 if (!isValid) {
                     return new InvalidItemTag();
                 }
 
-                var key = ItemKey.toKey(stack);
                 if (key != null) {
                     TagManager.ITEM.createTag(tagName, key);
                 }
@@ -210,11 +258,14 @@ abstract class AbstractTagBuilder {
 
             @Override
             public ItemRemoveKey removeKey(@Nullable ItemStack stack) {
+                return removeKey(ItemKey.toKey(stack));
+            }
+
+            private ItemRemoveKey removeKey(@Nullable ItemKey key) {
                 if (!isValid) {
                     return new InvalidItemTag();
                 }
 
-                var key = ItemKey.toKey(stack);
                 if (key != null) {
                     TagManager.ITEM.removeTagKey(tagName, key);
                 }
@@ -223,12 +274,22 @@ abstract class AbstractTagBuilder {
 
             @Override
             public ItemRemoveKey removeKey(Item item) {
-                return removeKey(new ItemStack(item));
+                return removeKey(ItemKey.of(item, 0));
             }
 
             @Override
             public ItemRemoveKey removeKey(Item item, int metadata) {
-                return removeKey(new ItemStack(item, 1, metadata));
+                return removeKey(ItemKey.of(item, metadata));
+            }
+
+            @Override
+            public ItemAddable addTag(@Nullable String nestedTag) {
+                if (!isValid) {
+                    return new InvalidItemTag();
+                }
+
+                includeTag(TagType.ITEM, tagName, nestedTag);
+                return new ItemTagAdder(tagName);
             }
 
             @Override
@@ -241,12 +302,12 @@ abstract class AbstractTagBuilder {
 
             @Override
             public ItemAddable add(Item item) {
-                return add(new ItemStack(item));
+                return add(ItemKey.of(item, 0));
             }
 
             @Override
             public ItemAddable add(Item item, int metadata) {
-                return add(new ItemStack(item, 1, metadata));
+                return add(ItemKey.of(item, metadata));
             }
         }
     }
@@ -260,7 +321,10 @@ abstract class AbstractTagBuilder {
 
         @Override
         public ItemRemoveKey removeKey(@Nullable ItemStack stack) {
-            var key = ItemKey.toKey(stack);
+            return removeKey(ItemKey.toKey(stack));
+        }
+
+        private ItemRemoveKey removeKey(@Nullable ItemKey key) {
             if (key != null) {
                 TagManager.ITEM.removeTagKey(tagName, key);
             }
@@ -269,12 +333,12 @@ abstract class AbstractTagBuilder {
 
         @Override
         public ItemRemoveKey removeKey(Item item) {
-            return removeKey(new ItemStack(item));
+            return removeKey(ItemKey.of(item, 0));
         }
 
         @Override
         public ItemRemoveKey removeKey(Item item, int metadata) {
-            return removeKey(new ItemStack(item, 1, metadata));
+            return removeKey(ItemKey.of(item, metadata));
         }
     }
 
@@ -285,9 +349,18 @@ abstract class AbstractTagBuilder {
             this.tagName = tagName;
         }
 
+        @Override
+        public ItemAddable addTag(@Nullable String nestedTag) {
+            includeTag(TagType.ITEM, tagName, nestedTag);
+            return this;
+        }
+
         @Override
         public ItemAddable add(@Nullable ItemStack stack) {
-            var key = ItemKey.toKey(stack);
+            return add(ItemKey.toKey(stack));
+        }
+
+        private ItemAddable add(@Nullable ItemKey key) {
             if (key != null) {
                 TagManager.ITEM.createTag(tagName, key);
             }
@@ -296,16 +369,21 @@ abstract class AbstractTagBuilder {
 
         @Override
         public ItemAddable add(Item item) {
-            return add(new ItemStack(item));
+            return add(ItemKey.of(item, 0));
         }
 
         @Override
         public ItemAddable add(Item item, int metadata) {
-            return add(new ItemStack(item, 1, metadata));
+            return add(ItemKey.of(item, metadata));
         }
     }
 
     public static class InvalidItemTag implements ItemAddable, ItemRemoveKey, Completed {
+        @Override
+        public ItemAddable addTag(@Nullable String nestedTag) {
+            return this;
+        }
+
         @Override
         public ItemAddable add(@Nullable ItemStack stack) {
             return this;
@@ -376,6 +454,16 @@ abstract class AbstractTagBuilder {
                 return removeKey(new FluidStack(fluid, 1000));
             }
 
+            @Override
+            public FluidAddable addTag(@Nullable String nestedTag) {
+                if (!isValid) {
+                    return new InvalidFluidTag();
+                }
+
+                includeTag(TagType.FLUID, tagName, nestedTag);
+                return new FluidTagAdder(tagName);
+            }
+
             @Override
             public void removeTag() {
                 if (!isValid) {
@@ -419,6 +507,12 @@ abstract class AbstractTagBuilder {
             this.tagName = tagName;
         }
 
+        @Override
+        public FluidAddable addTag(@Nullable String nestedTag) {
+            includeTag(TagType.FLUID, tagName, nestedTag);
+            return this;
+        }
+
         @Override
         public FluidAddable add(@Nullable FluidStack stack) {
             if (stack != null && stack.getFluid() != null) {
@@ -434,6 +528,11 @@ abstract class AbstractTagBuilder {
     }
 
     public static class InvalidFluidTag implements FluidAddable, FluidRemoveKey, Completed {
+        @Override
+        public FluidAddable addTag(@Nullable String nestedTag) {
+            return this;
+        }
+
         @Override
         public FluidAddable add(@Nullable FluidStack stack) {
             return this;
@@ -477,6 +576,30 @@ abstract class AbstractTagBuilder {
                 return new BlockTagAdder(tagName);
             }
 
+            @Override
+            public BlockAddable add(@Nullable IBlockState blockState) {
+                if (!isValid) {
+                    return new InvalidBlockTag();
+                }
+
+                if (blockState != null) {
+                    TagManager.BLOCK_STATE.createTag(tagName, BlockStateIndex.canonical(blockState));
+                }
+                return new BlockTagAdder(tagName);
+            }
+
+            @Override
+            public BlockAddable add(@Nullable Class<? extends TileEntity> tileEntity) {
+                if (!isValid) {
+                    return new InvalidBlockTag();
+                }
+
+                if (tileEntity != null) {
+                    TagManager.TILE_ENTITY.createTag(tagName, tileEntity);
+                }
+                return new BlockTagAdder(tagName);
+            }
+
             @Override
             public BlockRemoveKey removeKey(@Nullable Block block) {
                 if (!isValid) {
@@ -489,12 +612,48 @@ abstract class AbstractTagBuilder {
                 return new BlockTagRemover(tagName);
             }
 
+            @Override
+            public BlockRemoveKey removeKey(@Nullable IBlockState blockState) {
+                if (!isValid) {
+                    return new InvalidBlockTag();
+                }
+
+                if (blockState != null) {
+                    TagManager.BLOCK_STATE.removeTagKey(tagName, BlockStateIndex.canonical(blockState));
+                }
+                return new BlockTagRemover(tagName);
+            }
+
+            @Override
+            public BlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity) {
+                if (!isValid) {
+                    return new InvalidBlockTag();
+                }
+
+                if (tileEntity != null) {
+                    TagManager.TILE_ENTITY.removeTagKey(tagName, tileEntity);
+                }
+                return new BlockTagRemover(tagName);
+            }
+
+            @Override
+            public BlockAddable addTag(@Nullable String nestedTag) {
+                if (!isValid) {
+                    return new InvalidBlockTag();
+                }
+
+                includeTag(TagType.BLOCK, tagName, nestedTag);
+                return new BlockTagAdder(tagName);
+            }
+
             @Override
             public void removeTag() {
                 if (!isValid) {
                     return;
                 }
                 TagManager.BLOCK.removeTag(tagName);
+                TagManager.BLOCK_STATE.removeTag(tagName);
+                TagManager.TILE_ENTITY.removeTag(tagName);
             }
         }
     }
@@ -513,6 +672,22 @@ abstract class AbstractTagBuilder {
             }
             return this;
         }
+
+        @Override
+        public BlockRemoveKey removeKey(@Nullable IBlockState blockState) {
+            if (blockState != null) {
+                TagManager.BLOCK_STATE.removeTagKey(tagName, BlockStateIndex.canonical(blockState));
+            }
+            return this;
+        }
+
+        @Override
+        public BlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity) {
+            if (tileEntity != null) {
+                TagManager.TILE_ENTITY.removeTagKey(tagName, tileEntity);
+            }
+            return this;
+        }
     }
 
     public static class BlockTagAdder implements BlockAddable, Completed {
@@ -522,6 +697,12 @@ abstract class AbstractTagBuilder {
             this.tagName = tagName;
         }
 
+        @Override
+        public BlockAddable addTag(@Nullable String nestedTag) {
+            includeTag(TagType.BLOCK, tagName, nestedTag);
+            return this;
+        }
+
         @Override
         public BlockAddable add(@Nullable Block block) {
             if (block != null) {
@@ -529,9 +710,30 @@ abstract class AbstractTagBuilder {
             }
             return this;
         }
+
+        @Override
+        public BlockAddable add(@Nullable IBlockState blockState) {
+            if (blockState != null) {
+                TagManager.BLOCK_STATE.createTag(tagName, BlockStateIndex.canonical(blockState));
+            }
+            return this;
+        }
+
+        @Override
+        public BlockAddable add(@Nullable Class<? extends TileEntity> tileEntity) {
+            if (tileEntity != null) {
+                TagManager.TILE_ENTITY.createTag(tagName, tileEntity);
+            }
+            return this;
+        }
     }
 
     public static class InvalidBlockTag implements BlockAddable, BlockRemoveKey, Completed {
+        @Override
+        public BlockAddable addTag(@Nullable String nestedTag) {
+            return this;
+        }
+
         @Override
         public BlockAddable add(@Nullable Block block) {
             return this;
@@ -541,6 +743,26 @@ abstract class AbstractTagBuilder {
         public BlockRemoveKey removeKey(@Nullable Block block) {
             return this;
         }
+
+        @Override
+        public BlockAddable add(@Nullable IBlockState blockState) {
+            return this;
+        }
+
+        @Override
+        public BlockAddable add(@Nullable Class<? extends TileEntity> tileEntity) {
+            return this;
+        }
+
+        @Override
+        public BlockRemoveKey removeKey(@Nullable IBlockState blockState) {
+            return this;
+        }
+
+        @Override
+        public BlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity) {
+            return this;
+        }
     }
 
     public static abstract class MultiTagBuilder {
@@ -572,11 +794,14 @@ abstract class AbstractTagBuilder {
         public class InitialState implements MultiItemInitialState {
             @Override
             public MultiItemAddable add(@Nullable ItemStack stack) {
+                return add(ItemKey.toKey(stack));
+            }
+
+            private MultiItemAddable add(@Nullable ItemKey key) {
                 if (!isValid) {
                     return new InvalidMultiItemTag();
                 }
 
-                var key = ItemKey.toKey(stack);
                 if (key != null) {
                     TagManager.ITEM.createTag(tagNames, key);
                 }
@@ -585,11 +810,14 @@ abstract class AbstractTagBuilder {
 
             @Override
             public MultiItemRemoveKey removeKey(@Nullable ItemStack stack) {
+                return removeKey(ItemKey.toKey(stack));
+            }
+
+            private MultiItemRemoveKey removeKey(@Nullable ItemKey key) {
                 if (!isValid) {
                     return new InvalidMultiItemTag();
                 }
 
-                var key = ItemKey.toKey(stack);
                 if (key != null) {
                     TagManager.ITEM.removeTagKey(tagNames, key);
                 }
@@ -598,12 +826,22 @@ abstract class AbstractTagBuilder {
 
             @Override
             public MultiItemRemoveKey removeKey(Item item) {
-                return removeKey(new ItemStack(item));
+                return removeKey(ItemKey.of(item, 0));
             }
 
             @Override
             public MultiItemRemoveKey removeKey(Item item, int metadata) {
-                return removeKey(new ItemStack(item, 1, metadata));
+                return removeKey(ItemKey.of(item, metadata));
+            }
+
+            @Override
+            public MultiItemAddable addTag(@Nullable String nestedTag) {
+                if (!isValid) {
+                    return new InvalidMultiItemTag();
+                }
+
+                includeTag(TagType.ITEM, tagNames, nestedTag);
+                return new MultiItemTagAdder(tagNames);
             }
 
             @Override
@@ -616,12 +854,12 @@ abstract class AbstractTagBuilder {
 
             @Override
             public MultiItemAddable add(Item item) {
-                return add(new ItemStack(item));
+                return add(ItemKey.of(item, 0));
             }
 
             @Override
             public MultiItemAddable add(Item item, int metadata) {
-                return add(new ItemStack(item, 1, metadata));
+                return add(ItemKey.of(item, metadata));
             }
         }
     }
@@ -635,7 +873,10 @@ abstract class AbstractTagBuilder {
 
         @Override
         public MultiItemRemoveKey removeKey(@Nullable ItemStack stack) {
-            var key = ItemKey.toKey(stack);
+            return removeKey(ItemKey.toKey(stack));
+        }
+
+        private MultiItemRemoveKey removeKey(@Nullable ItemKey key) {
             if (key != null) {
                 TagManager.ITEM.removeTagKey(tagNames, key);
             }
@@ -644,12 +885,12 @@ abstract class AbstractTagBuilder {
 
         @Override
         public MultiItemRemoveKey removeKey(Item item) {
-            return removeKey(new ItemStack(item));
+            return removeKey(ItemKey.of(item, 0));
         }
 
         @Override
         public MultiItemRemoveKey removeKey(Item item, int metadata) {
-            return removeKey(new ItemStack(item, 1, metadata));
+            return removeKey(ItemKey.of(item, metadata));
         }
     }
 
@@ -660,9 +901,18 @@ abstract class AbstractTagBuilder {
             this.tagNames = tagNames;
         }
 
+        @Override
+        public MultiItemAddable addTag(@Nullable String nestedTag) {
+            includeTag(TagType.ITEM, tagNames, nestedTag);
+            return this;
+        }
+
         @Override
         public MultiItemAddable add(@Nullable ItemStack stack) {
-            var key = ItemKey.toKey(stack);
+            return add(ItemKey.toKey(stack));
+        }
+
+        private MultiItemAddable add(@Nullable ItemKey key) {
             if (key != null) {
                 TagManager.ITEM.createTag(tagNames, key);
             }
@@ -671,12 +921,12 @@ abstract class AbstractTagBuilder {
 
         @Override
         public MultiItemAddable add(Item item) {
-            return add(new ItemStack(item));
+            return add(ItemKey.of(item, 0));
         }
 
         @Override
         public MultiItemAddable add(Item item, int metadata) {
-            return add(new ItemStack(item, 1, metadata));
+            return add(ItemKey.of(item, metadata));
         }
     }
 
@@ -719,6 +969,16 @@ abstract class AbstractTagBuilder {
                 return removeKey(new FluidStack(fluid, 1000));
             }
 
+            @Override
+            public MultiFluidAddable addTag(@Nullable String nestedTag) {
+                if (!isValid) {
+                    return new InvalidMultiFluidTag();
+                }
+
+                includeTag(TagType.FLUID, tagNames, nestedTag);
+                return new MultiFluidTagAdder(tagNames);
+            }
+
             @Override
             public void removeTag() {
                 if (!isValid) {
@@ -762,6 +1022,12 @@ abstract class AbstractTagBuilder {
             this.tagNames = tagNames;
         }
 
+        @Override
+        public MultiFluidAddable addTag(@Nullable String nestedTag) {
+            includeTag(TagType.FLUID, tagNames, nestedTag);
+            return this;
+        }
+
         @Override
         public MultiFluidAddable add(@Nullable FluidStack stack) {
             if (stack != null && stack.getFluid() != null) {
@@ -798,6 +1064,30 @@ abstract class AbstractTagBuilder {
                 return new MultiBlockTagAdder(tagNames);
             }
 
+            @Override
+            public MultiBlockAddable add(@Nullable IBlockState blockState) {
+                if (!isValid) {
+                    return new InvalidMultiBlockTag();
+                }
+
+                if (blockState != null) {
+                    TagManager.BLOCK_STATE.createTag(tagNames, BlockStateIndex.canonical(blockState));
+                }
+                return new MultiBlockTagAdder(tagNames);
+            }
+
+            @Override
+            public MultiBlockAddable add(@Nullable Class<? extends TileEntity> tileEntity) {
+                if (!isValid) {
+                    return new InvalidMultiBlockTag();
+                }
+
+                if (tileEntity != null) {
+                    TagManager.TILE_ENTITY.createTag(tagNames, tileEntity);
+                }
+                return new MultiBlockTagAdder(tagNames);
+            }
+
             @Override
             public MultiBlockRemoveKey removeKey(@Nullable Block block) {
                 if (!isValid) {
@@ -810,12 +1100,48 @@ abstract class AbstractTagBuilder {
                 return new MultiBlockTagRemover(tagNames);
             }
 
+            @Override
+            public MultiBlockRemoveKey removeKey(@Nullable IBlockState blockState) {
+                if (!isValid) {
+                    return new InvalidMultiBlockTag();
+                }
+
+                if (blockState != null) {
+                    TagManager.BLOCK_STATE.removeTagKey(tagNames, BlockStateIndex.canonical(blockState));
+                }
+                return new MultiBlockTagRemover(tagNames);
+            }
+
+            @Override
+            public MultiBlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity) {
+                if (!isValid) {
+                    return new InvalidMultiBlockTag();
+                }
+
+                if (tileEntity != null) {
+                    TagManager.TILE_ENTITY.removeTagKey(tagNames, tileEntity);
+                }
+                return new MultiBlockTagRemover(tagNames);
+            }
+
+            @Override
+            public MultiBlockAddable addTag(@Nullable String nestedTag) {
+                if (!isValid) {
+                    return new InvalidMultiBlockTag();
+                }
+
+                includeTag(TagType.BLOCK, tagNames, nestedTag);
+                return new MultiBlockTagAdder(tagNames);
+            }
+
             @Override
             public void removeTag() {
                 if (!isValid) {
                     return;
                 }
                 TagManager.BLOCK.removeTag(tagNames);
+                TagManager.BLOCK_STATE.removeTag(tagNames);
+                TagManager.TILE_ENTITY.removeTag(tagNames);
             }
         }
     }
@@ -834,6 +1160,22 @@ abstract class AbstractTagBuilder {
             }
             return this;
         }
+
+        @Override
+        public MultiBlockRemoveKey removeKey(@Nullable IBlockState blockState) {
+            if (blockState != null) {
+                TagManager.BLOCK_STATE.removeTagKey(tagNames, BlockStateIndex.canonical(blockState));
+            }
+            return this;
+        }
+
+        @Override
+        public MultiBlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity) {
+            if (tileEntity != null) {
+                TagManager.TILE_ENTITY.removeTagKey(tagNames, tileEntity);
+            }
+            return this;
+        }
     }
 
     public static class MultiBlockTagAdder implements MultiBlockAddable, MultiCompleted {
@@ -843,6 +1185,12 @@ abstract class AbstractTagBuilder {
             this.tagNames = tagNames;
         }
 
+        @Override
+        public MultiBlockAddable addTag(@Nullable String nestedTag) {
+            includeTag(TagType.BLOCK, tagNames, nestedTag);
+            return this;
+        }
+
         @Override
         public MultiBlockAddable add(@Nullable Block block) {
             if (block != null) {
@@ -850,9 +1198,30 @@ abstract class AbstractTagBuilder {
             }
             return this;
         }
+
+        @Override
+        public MultiBlockAddable add(@Nullable IBlockState blockState) {
+            if (blockState != null) {
+                TagManager.BLOCK_STATE.createTag(tagNames, BlockStateIndex.canonical(blockState));
+            }
+            return this;
+        }
+
+        @Override
+        public MultiBlockAddable add(@Nullable Class<? extends TileEntity> tileEntity) {
+            if (tileEntity != null) {
+                TagManager.TILE_ENTITY.createTag(tagNames, tileEntity);
+            }
+            return this;
+        }
     }
 
     public static class InvalidMultiItemTag implements MultiItemAddable, MultiItemRemoveKey, MultiCompleted {
+        @Override
+        public MultiItemAddable addTag(@Nullable String nestedTag) {
+            return this;
+        }
+
         @Override
         public MultiItemAddable add(@Nullable ItemStack stack) {
             return this;
@@ -885,6 +1254,11 @@ abstract class AbstractTagBuilder {
     }
 
     public static class InvalidMultiFluidTag implements MultiFluidAddable, MultiFluidRemoveKey, MultiCompleted {
+        @Override
+        public MultiFluidAddable addTag(@Nullable String nestedTag) {
+            return this;
+        }
+
         @Override
         public MultiFluidAddable add(@Nullable FluidStack stack) {
             return this;
@@ -907,6 +1281,11 @@ abstract class AbstractTagBuilder {
     }
 
     public static class InvalidMultiBlockTag implements MultiBlockAddable, MultiBlockRemoveKey, MultiCompleted {
+        @Override
+        public MultiBlockAddable addTag(@Nullable String nestedTag) {
+            return this;
+        }
+
         @Override
         public MultiBlockAddable add(@Nullable Block block) {
             return this;
@@ -916,5 +1295,25 @@ abstract class AbstractTagBuilder {
         public MultiBlockRemoveKey removeKey(@Nullable Block block) {
             return this;
         }
+
+        @Override
+        public MultiBlockAddable add(@Nullable IBlockState blockState) {
+            return this;
+        }
+
+        @Override
+        public MultiBlockAddable add(@Nullable Class<? extends TileEntity> tileEntity) {
+            return this;
+        }
+
+        @Override
+        public MultiBlockRemoveKey removeKey(@Nullable IBlockState blockState) {
+            return this;
+        }
+
+        @Override
+        public MultiBlockRemoveKey removeKey(@Nullable Class<? extends TileEntity> tileEntity) {
+            return this;
+        }
     }
 }
@@ -0,0 +1,263 @@
+package com.gardenevery.tag;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+/**
+ * Block-state index over the frozen {@link TagManager#BLOCK} and {@link TagManager#BLOCK_STATE} snapshots.
+ * <p>
+ * Block-wide entries are expanded to every valid state of the block, and each tag keeps a bitset over
+ * {@link Block#getStateId(IBlockState)}, so checking a state is one bit test once the tag is resolved.
+ * State IDs are derived from metadata: states that differ only in properties not saved to metadata
+ * share one entry. The index is rebuilt lazily whenever either snapshot changes.
+ */
+final class BlockStateIndex implements TagMembership {
+
+    private static volatile BlockStateIndex current;
+
+    private final TagSnapshot<Block> blocks;
+    private final TagSnapshot<IBlockState> states;
+    final TagSnapshot<Integer> stateTags;
+    private final Int2IntOpenHashMap keyIds;
+    private final long[][] bits;
+
+    private BlockStateIndex(TagSnapshot<Block> blocks, TagSnapshot<IBlockState> states) {
+        this.blocks = blocks;
+        this.states = states;
+
+        var tagToStates = new Object2ReferenceOpenHashMap<String, ObjectOpenHashSet<Integer>>(blocks.names.length + states.names.length);
+        for (int tagId = 0; tagId < blocks.names.length; tagId++) {
+            var ids = tagToStates.computeIfAbsent(blocks.names[tagId], k -> new ObjectOpenHashSet<>());
+            for (int keyId : blocks.tagKeys[tagId]) {
+                for (var state : blocks.key(keyId).getBlockState().getValidStates()) {
+                    ids.add(Block.getStateId(state));
+                }
+            }
+        }
+        for (int tagId = 0; tagId < states.names.length; tagId++) {
+            var ids = tagToStates.computeIfAbsent(states.names[tagId], k -> new ObjectOpenHashSet<>());
+            for (int keyId : states.tagKeys[tagId]) {
+                ids.add(Block.getStateId(states.key(keyId)));
+            }
+        }
+
+        this.stateTags = TagSnapshot.of(tagToStates);
+        this.keyIds = new Int2IntOpenHashMap(stateTags.keys.length);
+        this.keyIds.defaultReturnValue(-1);
+        for (int keyId = 0; keyId < stateTags.keys.length; keyId++) {
+            keyIds.put(stateTags.key(keyId).intValue(), keyId);
+        }
+
+        this.bits = new long[stateTags.names.length][];
+        for (int tagId = 0; tagId < bits.length; tagId++) {
+            int maxStateId = 0;
+            for (int keyId : stateTags.tagKeys[tagId]) {
+                maxStateId = Math.max(maxStateId, stateTags.key(keyId));
+            }
+
+            // sized to the tag's highest state ID, so tags of low-ID vanilla blocks stay small
+            var words = new long[(maxStateId >>> 6) + 1];
+            for (int keyId : stateTags.tagKeys[tagId]) {
+                int stateId = stateTags.key(keyId);
+                words[stateId >>> 6] |= 1L << stateId;
+            }
+            bits[tagId] = words;
+        }
+    }
+
+    static BlockStateIndex of(@Nonnull TagSnapshot<Block> blocks, @Nonnull TagSnapshot<IBlockState> states) {
+        var index = current;
+        if (index == null || index.blocks != blocks || index.states != states) {
+            index = new BlockStateIndex(blocks, states);
+            current = index;
+        }
+        return index;
+    }
+
+    /**
+     * The current index, or null while either store is still mutable
+     */
+    static BlockStateIndex current() {
+        var blocks = TagManager.BLOCK.snapshot();
+        var states = TagManager.BLOCK_STATE.snapshot();
+        if (blocks == null || states == null) {
+            return null;
+        }
+        return of(blocks, states);
+    }
+
+    /**
+     * The current index if a query has built it, without building it
+     */
+    static BlockStateIndex peek() {
+        var index = current;
+        if (index == null || index.blocks != TagManager.BLOCK.snapshot() || index.states != TagManager.BLOCK_STATE.snapshot()) {
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * Estimated bytes held by this index, which shares nothing with its source snapshots
+     */
+    long estimateBytes() {
+        long bytes = TagMemory.estimate("block state", stateTags, TagMemory.BOXED_INT).total();
+        bytes += TagMemory.hashTable(keyIds.size(), 4) + TagMemory.array(bits.length, TagMemory.REF);
+        for (var words : bits) {
+            bytes += TagMemory.array(words.length, 8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Add the states set in a bitset over {@link #stateTags} key IDs, as the {@link Block} when every valid
+     * state of the block is set and as single canonical states otherwise
+     */
+    void addElements(@Nonnull long[] words, @Nonnull Set<Object> result) {
+        var byBlock = new Reference2ObjectOpenHashMap<Block, IntArrayList>();
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                int stateId = stateTags.key((i << 6) + Long.numberOfTrailingZeros(word));
+                byBlock.computeIfAbsent(Block.getStateById(stateId).getBlock(), k -> new IntArrayList()).add(stateId);
+                word &= word - 1;
+            }
+        }
+
+        for (var entry : byBlock.reference2ObjectEntrySet()) {
+            var block = entry.getKey();
+            var stateIds = entry.getValue();
+            var validIds = new IntOpenHashSet();
+            for (var state : block.getBlockState().getValidStates()) {
+                validIds.add(Block.getStateId(state));
+            }
+
+            if (stateIds.size() >= validIds.size()) {
+                result.add(block);
+            } else {
+                for (int stateId : stateIds) {
+                    result.add(Block.getStateById(stateId));
+                }
+            }
+        }
+    }
+
+    /**
+     * The state every state with the same {@link Block#getStateId(IBlockState)} is stored under
+     */
+    static IBlockState canonical(@Nonnull IBlockState state) {
+        return Block.getStateById(Block.getStateId(state));
+    }
+
+    @Override
+    public boolean hasTag(int stateId, int tagId) {
+        if (tagId < 0) {
+            return false;
+        }
+
+        var words = bits[tagId];
+        int word = stateId >>> 6;
+        return word < words.length && (words[word] & (1L << stateId)) != 0;
+    }
+
+    /**
+     * Names of every block tag, whether it holds whole blocks, single states, tile entity classes or a mix,
+     * in alphabetical order
+     */
+    static Set<String> allTags() {
+        var index = current();
+        var tileTags = TagManager.TILE_ENTITY.getSortedAllTag();
+        if (index != null && tileTags.isEmpty()) {
+            return index.stateTags.getAllTag();
+        }
+
+        var blockTags = index != null
+                ? index.stateTags.getSortedAllTag()
+                : TagSnapshot.mergeSorted(TagManager.BLOCK.getSortedAllTag(), TagManager.BLOCK_STATE.getSortedAllTag());
+        return Collections.unmodifiableSet(new ObjectLinkedOpenHashSet<>(TagSnapshot.mergeSorted(blockTags, tileTags)));
+    }
+
+    static List<String> sortedTags(@Nonnull IBlockState state) {
+        var index = current();
+        if (index == null) {
+            return TagSnapshot.mergeSorted(TagManager.BLOCK.getSortedTag(state.getBlock()), TagManager.BLOCK_STATE.getSortedTag(canonical(state)));
+        }
+        return index.stateTags.sortedTagsOf(index.keyIds.get(Block.getStateId(state)));
+    }
+
+    static Set<String> getTag(@Nonnull IBlockState state) {
+        var index = current();
+        if (index == null) {
+            var blockTags = TagManager.BLOCK.getTag(state.getBlock());
+            var stateTags = TagManager.BLOCK_STATE.getTag(canonical(state));
+            if (stateTags.isEmpty()) {
+                return blockTags;
+            }
+            if (blockTags.isEmpty()) {
+                return stateTags;
+            }
+
+            var tags = new ObjectOpenHashSet<>(blockTags);
+            tags.addAll(stateTags);
+            return Collections.unmodifiableSet(tags);
+        }
+        return index.stateTags.tagsOf(index.keyIds.get(Block.getStateId(state)));
+    }
+
+    static boolean hasTag(@Nonnull IBlockState state, @Nonnull String tagName) {
+        var index = current();
+        if (index == null) {
+            return TagManager.BLOCK.hasTag(state.getBlock(), tagName) || TagManager.BLOCK_STATE.hasTag(canonical(state), tagName);
+        }
+        return index.hasTag(Block.getStateId(state), index.stateTags.tagId(tagName));
+    }
+
+    static boolean hasAnyTag(@Nonnull IBlockState state, @Nonnull Set<String> tagNames) {
+        var index = current();
+        if (index == null) {
+            return TagManager.BLOCK.hasAnyTag(state.getBlock(), tagNames) || TagManager.BLOCK_STATE.hasAnyTag(canonical(state), tagNames);
+        }
+        return index.stateTags.hasAnyTag(index.keyIds.get(Block.getStateId(state)), tagNames);
+    }
+
+    static boolean hasAllTags(@Nonnull IBlockState state, @Nonnull Set<String> tagNames) {
+        var index = current();
+        if (index == null) {
+            for (var tagName : tagNames) {
+                if (!hasTag(state, tagName)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int stateId = Block.getStateId(state);
+        for (var tagName : tagNames) {
+            if (!index.hasTag(stateId, index.stateTags.tagId(tagName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean containsKey(@Nonnull IBlockState state) {
+        var index = current();
+        if (index == null) {
+            return TagManager.BLOCK.containsKey(state.getBlock()) || TagManager.BLOCK_STATE.containsKey(canonical(state));
+        }
+        return index.keyIds.containsKey(Block.getStateId(state));
+    }
+}
@@ -0,0 +1,171 @@
+package com.gardenevery.tag;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidStack;
+
+import it.unimi.dsi.fastutil.objects.ObjectArraySet;
+
+/**
+ * Element sets per tag, built once per frozen snapshot. A snapshot appended to the cached one keeps the sets
+ * of the tags it did not change.
+ * <p>
+ * A cached set is a read-only view over the tag's immutable keys, shared between callers; the stacks are made
+ * from the keys while iterating, so every caller gets its own stacks and may change their size or NBT. Before
+ * freezing nothing is cached and every call builds fresh elements.
+ */
+final class ElementCache<T, E> {
+
+    static final ElementCache<ItemKey, ItemStack> ITEM = new ElementCache<>(TagManager.ITEM, ItemKey::toElement);
+    static final ElementCache<Fluid, FluidStack> FLUID = new ElementCache<>(TagManager.FLUID, fluid -> new FluidStack(fluid, 1000));
+
+    private final Tag<T> tag;
+    private final Function<T, E> factory;
+    private volatile Elements<T, E> current;
+
+    private ElementCache(Tag<T> tag, Function<T, E> factory) {
+        this.tag = tag;
+        this.factory = factory;
+    }
+
+    Set<E> get(@Nonnull String tagName) {
+        var snapshot = tag.snapshot();
+        if (snapshot == null) {
+            return materialize(tag.getKey(tagName));
+        }
+
+        int tagId = snapshot.tagId(tagName);
+        if (tagId < 0) {
+            return Collections.emptySet();
+        }
+
+        var elements = current;
+        if (elements == null || elements.snapshot != snapshot) {
+            elements = new Elements<>(snapshot, elements);
+            current = elements;
+        }
+
+        var cached = elements.sets.get(tagId);
+        if (cached == null) {
+            cached = materialize(snapshot, tagId);
+            // a racing thread may build the same set; keep whichever landed first
+            if (!elements.sets.compareAndSet(tagId, null, cached)) {
+                cached = elements.sets.get(tagId);
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Estimated bytes of the views cached for the current snapshot; the keys belong to the snapshot
+     */
+    long estimateBytes() {
+        var elements = current;
+        if (elements == null || elements.snapshot != tag.snapshot()) {
+            return 0;
+        }
+
+        long bytes = TagMemory.align(TagMemory.HEADER + 2 * TagMemory.REF) + TagMemory.align(TagMemory.HEADER + TagMemory.REF)
+                + TagMemory.array(elements.sets.length(), TagMemory.REF);
+        for (int tagId = 0; tagId < elements.sets.length(); tagId++) {
+            if (elements.sets.get(tagId) != null) {
+                // the unmodifiable wrapper and the view
+                bytes += TagMemory.align(TagMemory.HEADER + TagMemory.REF) + TagMemory.align(TagMemory.HEADER + 3 * TagMemory.REF);
+            }
+        }
+        return bytes;
+    }
+
+    private Set<E> materialize(TagSnapshot<T> snapshot, int tagId) {
+        return Collections.unmodifiableSet(new ElementSet<>(snapshot, snapshot.keyIds(tagId), factory));
+    }
+
+    private Set<E> materialize(Collection<T> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        var result = new Object[keys.size()];
+        int i = 0;
+        for (var key : keys) {
+            result[i++] = factory.apply(key);
+        }
+        return Collections.unmodifiableSet(new ObjectArraySet<>(result));
+    }
+
+    /**
+     * Set view making a new element from each key it visits
+     */
+    private static final class ElementSet<T, E> extends AbstractSet<E> {
+        private final TagSnapshot<T> snapshot;
+        private final int[] ids;
+        private final Function<T, E> factory;
+
+        ElementSet(TagSnapshot<T> snapshot, int[] ids, Function<T, E> factory) {
+            this.snapshot = snapshot;
+            this.ids = ids;
+            this.factory = factory;
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+
+        @Nonnull
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < ids.length;
+                }
+
+                @Override
+                public E next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return factory.apply(snapshot.key(ids[index++]));
+                }
+            };
+        }
+    }
+
+    private static final class Elements<T, E> {
+        final TagSnapshot<T> snapshot;
+        final AtomicReferenceArray<Set<E>> sets;
+
+        /**
+         * Keep the sets of {@code previous} whose tags the snapshot left unchanged, when it was appended to
+         * the same lineage
+         */
+        Elements(TagSnapshot<T> snapshot, @Nullable Elements<T, E> previous) {
+            this.snapshot = snapshot;
+            this.sets = new AtomicReferenceArray<>(snapshot.names.length);
+            if (previous == null || previous.snapshot.lineage != snapshot.lineage) {
+                return;
+            }
+
+            for (int tagId = 0; tagId < snapshot.names.length; tagId++) {
+                var set = previous.sets.get(tagId);
+                if (set != null && previous.snapshot.tagKeys[tagId] == snapshot.tagKeys[tagId]) {
+                    sets.set(tagId, set);
+                }
+            }
+        }
+    }
+}
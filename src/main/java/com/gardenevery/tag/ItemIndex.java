@@ -0,0 +1,408 @@
+package com.gardenevery.tag;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.item.Item;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+
+/**
+ * Item-identity index over a frozen {@link TagManager#ITEM} snapshot.
+ * <p>
+ * Resolves (Item, metadata) straight to a key ID so item queries never build an {@link ItemKey}.
+ * A {@link ItemKey#WILDCARD} key applies to every metadata of its item: an item with only a wildcard key
+ * resolves to it without a metadata lookup, and a metadata key of an item that also has a wildcard key is
+ * checked against both keys' tags at lookup time. Key and tag IDs are the source snapshot's. The index is
+ * derived lazily from the current snapshot whenever the snapshot changes; a snapshot that only appended keys to
+ * the indexed one extends a copy of the index with the new keys.
+ */
+final class ItemIndex implements TagMembership {
+
+    private static volatile ItemIndex current;
+
+    final TagSnapshot<ItemKey> snapshot;
+    private final Reference2ObjectOpenHashMap<Item, Entry> entries;
+    /**
+     * The wildcard key ID of every metadata key whose item also has a wildcard key
+     */
+    private final Int2IntOpenHashMap wildcardIds;
+    /**
+     * The tag IDs of every key in {@link #wildcardIds} together with those of its wildcard key, sorted
+     */
+    private final Int2ObjectOpenHashMap<int[]> mergedTagIds;
+
+    /**
+     * @param base an index of an earlier snapshot of the same lineage, whose keys this one extends, or null
+     */
+    private ItemIndex(TagSnapshot<ItemKey> snapshot, @Nullable ItemIndex base) {
+        this.snapshot = snapshot;
+        int firstKey = 0;
+        if (base == null) {
+            this.entries = new Reference2ObjectOpenHashMap<>();
+            this.wildcardIds = new Int2IntOpenHashMap(0);
+            this.wildcardIds.defaultReturnValue(-1);
+        } else {
+            this.entries = new Reference2ObjectOpenHashMap<>(base.entries);
+            this.wildcardIds = new Int2IntOpenHashMap(base.wildcardIds);
+            this.wildcardIds.defaultReturnValue(-1);
+            firstKey = base.snapshot.keys.length;
+        }
+
+        // entries still shared with the base index are copied before they change
+        var copied = new ReferenceOpenHashSet<Entry>();
+        for (int keyId = firstKey; keyId < snapshot.keys.length; keyId++) {
+            var key = snapshot.key(keyId);
+            var entry = entries.get(key.item());
+            if (entry == null || (base != null && !copied.contains(entry))) {
+                entry = entry == null ? new Entry() : entry.copy();
+                entries.put(key.item(), entry);
+                copied.add(entry);
+            }
+
+            if (key.isWildcard()) {
+                entry.wildcardId = keyId;
+                if (entry.metaIds != null) {
+                    for (int metaId : entry.metaIds.values()) {
+                        wildcardIds.put(metaId, keyId);
+                    }
+                }
+            } else {
+                if (entry.metaIds == null) {
+                    entry.metaIds = new Int2IntOpenHashMap(1);
+                    entry.metaIds.defaultReturnValue(-1);
+                }
+                entry.metaIds.put(key.metadata(), keyId);
+                if (entry.wildcardId >= 0) {
+                    wildcardIds.put(keyId, entry.wildcardId);
+                }
+            }
+        }
+        wildcardIds.trim();
+
+        this.mergedTagIds = new Int2ObjectOpenHashMap<>(wildcardIds.size());
+        for (var entry : wildcardIds.int2IntEntrySet()) {
+            int keyId = entry.getIntKey();
+            int wildcardId = entry.getIntValue();
+            var merged = base == null || !base.sameTags(snapshot, keyId, wildcardId) ? null : base.mergedTagIds.get(keyId);
+            if (merged == null) {
+                merged = TagSnapshot.union(snapshot.keyTags[keyId], snapshot.keyTags[wildcardId]);
+            }
+            mergedTagIds.put(keyId, merged);
+        }
+    }
+
+    /**
+     * Check if both keys had the same tag rows in this index's snapshot as in {@code snapshot}
+     */
+    private boolean sameTags(TagSnapshot<ItemKey> other, int keyId, int wildcardId) {
+        int known = snapshot.keys.length;
+        return keyId < known && wildcardId < known
+                && snapshot.keyTags[keyId] == other.keyTags[keyId] && snapshot.keyTags[wildcardId] == other.keyTags[wildcardId];
+    }
+
+    /**
+     * The index of a snapshot, extending the last one built when the snapshot only added keys to its source
+     */
+    static ItemIndex of(@Nonnull TagSnapshot<ItemKey> snapshot) {
+        var index = current;
+        if (index == null || index.snapshot != snapshot) {
+            boolean extendable = index != null && index.snapshot.lineage == snapshot.lineage
+                    && index.snapshot.keys.length <= snapshot.keys.length;
+            index = new ItemIndex(snapshot, extendable ? index : null);
+            current = index;
+        }
+        return index;
+    }
+
+    /**
+     * The index of the current snapshot, or of a snapshot taken for this call while the store is still mutable
+     */
+    static ItemIndex current() {
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot != null) {
+            return of(snapshot);
+        }
+
+        var tagToKeys = new Object2ReferenceOpenHashMap<String, Set<ItemKey>>();
+        for (var tagName : TagManager.ITEM.getAllTag()) {
+            tagToKeys.put(tagName, TagManager.ITEM.getKey(tagName));
+        }
+        return new ItemIndex(TagSnapshot.of(tagToKeys), null);
+    }
+
+    /**
+     * The index of the current snapshot if a query has built it, without building it
+     */
+    @Nullable
+    static ItemIndex peek() {
+        var index = current;
+        return index != null && index.snapshot == TagManager.ITEM.snapshot() ? index : null;
+    }
+
+    /**
+     * Estimated bytes held by this index on top of its source snapshot
+     */
+    long estimateBytes() {
+        long bytes = TagMemory.hashTable(entries.size(), TagMemory.REF) + TagMemory.hashTable(wildcardIds.size(), 8)
+                + TagMemory.hashTable(mergedTagIds.size(), TagMemory.REF);
+        for (var merged : mergedTagIds.values()) {
+            bytes += TagMemory.array(merged.length, 4);
+        }
+        for (var entry : entries.values()) {
+            bytes += TagMemory.align(TagMemory.HEADER + 4 + TagMemory.REF);
+            if (entry.metaIds != null) {
+                bytes += TagMemory.hashTable(entry.metaIds.size(), 4);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the key ID of an item, falling back to its wildcard key
+     */
+    int keyId(@Nonnull Item item, int metadata) {
+        var entry = entries.get(item);
+        if (entry == null) {
+            return -1;
+        }
+        if (entry.metaIds == null) {
+            return entry.wildcardId;
+        }
+
+        int keyId = entry.metaIds.get(ItemKey.metadata(item, metadata));
+        return keyId >= 0 ? keyId : entry.wildcardId;
+    }
+
+    /**
+     * Get the wildcard key ID that also applies to a metadata key, or -1
+     */
+    int wildcardId(int keyId) {
+        return keyId < 0 ? -1 : wildcardIds.get(keyId);
+    }
+
+    @Override
+    public boolean hasTag(int keyId, int tagId) {
+        return snapshot.hasTag(keyId, tagId) || snapshot.hasTag(wildcardId(keyId), tagId);
+    }
+
+    Set<String> tagsOf(int keyId) {
+        var merged = mergedTagIds(keyId);
+        return merged == null ? snapshot.tagsOf(keyId) : snapshot.tagSet(merged);
+    }
+
+    List<String> sortedTagsOf(int keyId) {
+        var merged = mergedTagIds(keyId);
+        return merged == null ? snapshot.sortedTagsOf(keyId) : snapshot.tagList(merged);
+    }
+
+    @Nullable
+    private int[] mergedTagIds(int keyId) {
+        return keyId < 0 || mergedTagIds.isEmpty() ? null : mergedTagIds.get(keyId);
+    }
+
+    boolean hasAnyTag(int keyId, @Nonnull Set<String> tagNames) {
+        return snapshot.hasAnyTag(keyId, tagNames) || snapshot.hasAnyTag(wildcardId(keyId), tagNames);
+    }
+
+    boolean hasAllTags(int keyId, @Nonnull Set<String> tagNames) {
+        int wildcardId = wildcardId(keyId);
+        if (wildcardId < 0) {
+            return snapshot.hasAllTags(keyId, tagNames);
+        }
+
+        for (var tagName : tagNames) {
+            if (!hasTag(keyId, snapshot.tagId(tagName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bitset of a tag over key IDs with every metadata key set whose wildcard key is set; may be the snapshot's
+     * own bitset, so callers must not modify it
+     */
+    long[] bits(int tagId) {
+        var words = snapshot.bits(tagId);
+        if (wildcardIds.isEmpty()) {
+            return words;
+        }
+
+        long[] result = null;
+        for (var entry : wildcardIds.int2IntEntrySet()) {
+            int wildcardId = entry.getIntValue();
+            int keyId = entry.getIntKey();
+            if ((words[wildcardId >>> 6] & (1L << wildcardId)) != 0 && (words[keyId >>> 6] & (1L << keyId)) == 0) {
+                if (result == null) {
+                    result = words.clone();
+                }
+                result[keyId >>> 6] |= 1L << keyId;
+            }
+        }
+        return result == null ? words : result;
+    }
+
+    /**
+     * Clear the metadata keys of a result bitset whose wildcard key is also set, since the wildcard covers them
+     */
+    void dropCovered(@Nonnull long[] words) {
+        for (var entry : wildcardIds.int2IntEntrySet()) {
+            int wildcardId = entry.getIntValue();
+            int keyId = entry.getIntKey();
+            if ((words[wildcardId >>> 6] & (1L << wildcardId)) != 0) {
+                words[keyId >>> 6] &= ~(1L << keyId);
+            }
+        }
+    }
+
+    /**
+     * Clear the wildcard keys of a difference bitset that lost one of their metadata keys, since a wildcard
+     * cannot stand for every metadata but one; the remaining metadata keys stay set
+     */
+    void dropExcludedWildcards(@Nonnull long[] words) {
+        var dropped = new IntOpenHashSet();
+        for (var entry : wildcardIds.int2IntEntrySet()) {
+            int wildcardId = entry.getIntValue();
+            int keyId = entry.getIntKey();
+            if ((words[wildcardId >>> 6] & (1L << wildcardId)) != 0 && (words[keyId >>> 6] & (1L << keyId)) == 0) {
+                dropped.add(wildcardId);
+            }
+        }
+        for (int wildcardId : dropped) {
+            words[wildcardId >>> 6] &= ~(1L << wildcardId);
+        }
+    }
+
+    /**
+     * Tags of an item in the mutable store, including those of its wildcard key
+     */
+    private static Set<String> mutableTags(@Nonnull Item item, int metadata) {
+        var key = ItemKey.of(item, metadata);
+        if (key == null) {
+            return Collections.emptySet();
+        }
+
+        var tags = TagManager.ITEM.getTag(key);
+        var wildcard = ItemKey.wildcard(item);
+        if (wildcard == null || wildcard.equals(key)) {
+            return tags;
+        }
+
+        var wildcardTags = TagManager.ITEM.getTag(wildcard);
+        if (wildcardTags.isEmpty()) {
+            return tags;
+        }
+        if (tags.isEmpty()) {
+            return wildcardTags;
+        }
+
+        var merged = new ObjectOpenHashSet<>(tags);
+        merged.addAll(wildcardTags);
+        return Collections.unmodifiableSet(merged);
+    }
+
+    static Set<String> getTag(@Nonnull Item item, int metadata) {
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            return mutableTags(item, metadata);
+        }
+
+        var index = of(snapshot);
+        return index.tagsOf(index.keyId(item, metadata));
+    }
+
+    static List<String> sortedTags(@Nonnull Item item, int metadata) {
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            var key = ItemKey.of(item, metadata);
+            if (key == null) {
+                return Collections.emptyList();
+            }
+
+            var wildcard = ItemKey.wildcard(item);
+            var tags = TagManager.ITEM.getSortedTag(key);
+            return wildcard == null || wildcard.equals(key) ? tags : TagSnapshot.mergeSorted(tags, TagManager.ITEM.getSortedTag(wildcard));
+        }
+
+        var index = of(snapshot);
+        return index.sortedTagsOf(index.keyId(item, metadata));
+    }
+
+    static boolean hasTag(@Nonnull Item item, int metadata, @Nonnull String tagName) {
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            return mutableTags(item, metadata).contains(tagName);
+        }
+
+        var index = of(snapshot);
+        return index.hasTag(index.keyId(item, metadata), snapshot.tagId(tagName));
+    }
+
+    static boolean hasAnyTag(@Nonnull Item item, int metadata, @Nonnull Set<String> tagNames) {
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            for (var tagName : mutableTags(item, metadata)) {
+                if (tagNames.contains(tagName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        var index = of(snapshot);
+        return index.hasAnyTag(index.keyId(item, metadata), tagNames);
+    }
+
+    static boolean hasAllTags(@Nonnull Item item, int metadata, @Nonnull Set<String> tagNames) {
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            var tags = mutableTags(item, metadata);
+            return !tags.isEmpty() && tags.containsAll(tagNames);
+        }
+
+        var index = of(snapshot);
+        return index.hasAllTags(index.keyId(item, metadata), tagNames);
+    }
+
+    static boolean containsKey(@Nonnull Item item, int metadata) {
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            var key = ItemKey.of(item, metadata);
+            if (key == null) {
+                return false;
+            }
+
+            var wildcard = ItemKey.wildcard(item);
+            return TagManager.ITEM.containsKey(key) || (wildcard != null && TagManager.ITEM.containsKey(wildcard));
+        }
+        return of(snapshot).keyId(item, metadata) >= 0;
+    }
+
+    /**
+     * Key IDs of one item: its wildcard key, or -1, and its metadata keys, or null if it has none
+     */
+    private static final class Entry {
+        int wildcardId = -1;
+        Int2IntOpenHashMap metaIds;
+
+        Entry copy() {
+            var copy = new Entry();
+            copy.wildcardId = wildcardId;
+            copy.metaIds = metaIds == null ? null : new Int2IntOpenHashMap(metaIds);
+            if (copy.metaIds != null) {
+                copy.metaIds.defaultReturnValue(-1);
+            }
+            return copy;
+        }
+    }
+}
@@ -5,23 +5,57 @@ import javax.annotation.Nullable;
 
 import com.github.bsideup.jabel.Desugar;
 
+import net.minecraft.init.Items;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraftforge.oredict.OreDictionary;
 
+/**
+ * An item and metadata; metadata is 0 for items without subtypes, and {@link #WILDCARD} matches every
+ * metadata of an item with subtypes
+ */
 @Desugar
 record ItemKey(@Nonnull Item item, int metadata) {
+    static final int WILDCARD = OreDictionary.WILDCARD_VALUE;
+
     @Nullable
     public static ItemKey toKey(@Nullable ItemStack stack) {
         if (stack == null || stack.isEmpty()) {
             return null;
         }
+        return new ItemKey(stack.getItem(), metadata(stack));
+    }
 
-        int metadata = 0;
-        if (stack.getHasSubtypes()) {
-            metadata = stack.getMetadata();
+    /**
+     * Same key {@code toKey(new ItemStack(item, 1, metadata))} would give, without the stack: negative metadata
+     * is clamped to 0 as the stack does, and metadata above 65535 gives null as the stack would be empty
+     */
+    @Nullable
+    public static ItemKey of(@Nullable Item item, int metadata) {
+        if (item == null || item == Items.AIR || metadata > 65535) {
+            return null;
         }
+        return new ItemKey(item, metadata(item, metadata));
+    }
+
+    public static int metadata(@Nonnull ItemStack stack) {
+        return stack.getHasSubtypes() ? stack.getMetadata() : 0;
+    }
+
+    public static int metadata(@Nonnull Item item, int metadata) {
+        return item.getHasSubtypes() ? Math.max(metadata, 0) : 0;
+    }
+
+    /**
+     * Key matching every metadata of an item, or null if the item has no subtypes
+     */
+    @Nullable
+    public static ItemKey wildcard(@Nonnull Item item) {
+        return item.getHasSubtypes() ? new ItemKey(item, WILDCARD) : null;
+    }
 
-        return new ItemKey(stack.getItem(), metadata);
+    public boolean isWildcard() {
+        return metadata == WILDCARD;
     }
 
     @Nonnull
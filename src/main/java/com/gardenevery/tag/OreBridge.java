@@ -0,0 +1,128 @@
+package com.gardenevery.tag;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.oredict.OreDictionary;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Optional bridge from item tags back into the Ore Dictionary, for code that only calls
+ * {@code OreDictionary.getOres} / {@code getOreIDs}.
+ * <p>
+ * Only tags in Ore Dictionary style are bridged: names without a namespace, or names that already exist as
+ * ore names. For each, only the associations the dictionary does not already have are registered, so entries
+ * imported by {@link OreSync} are never duplicated. Later tag changes are pushed for the changed tags only, on
+ * the server thread. The dictionary cannot remove entries, so tags removed at runtime stay registered there
+ * until restart; {@link OreSync} ignores the pushed entries so a reload does not read them back.
+ */
+public class OreBridge {
+
+    private static final Logger LOGGER = LogManager.getLogger("OreBridge");
+    private static final Set<String> PENDING = ConcurrentHashMap.newKeySet();
+    private static final ConcurrentHashMap<String, Set<ItemKey>> PUSHED = new ConcurrentHashMap<>();
+
+    private OreBridge() {}
+
+    /**
+     * Push the frozen item tags and follow later changes; call once after the stores freeze
+     */
+    static void enable() {
+        push(TagManager.ITEM.getAllTag());
+        TagEvents.addListener((type, changedTags) -> {
+            // only a running server flushes the queue
+            if (type == TagType.ITEM && FMLCommonHandler.instance().getMinecraftServerInstance() != null) {
+                PENDING.addAll(changedTags);
+            }
+        });
+        MinecraftForge.EVENT_BUS.register(new OreBridge());
+    }
+
+    /**
+     * Check if an Ore Dictionary entry was registered by this bridge rather than by a mod
+     */
+    static boolean isPushed(String oreName, ItemKey key) {
+        if (PUSHED.isEmpty()) {
+            return false;
+        }
+
+        var keys = PUSHED.get(oreName);
+        return keys != null && keys.contains(key);
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || PENDING.isEmpty()) {
+            return;
+        }
+
+        var tagNames = new ObjectArrayList<>(PENDING);
+        PENDING.removeAll(tagNames);
+        push(tagNames);
+    }
+
+    static boolean isOreName(String tagName) {
+        return tagName.indexOf(':') < 0 || OreDictionary.doesOreNameExist(tagName);
+    }
+
+    private static void push(Collection<String> tagNames) {
+        long startTime = System.nanoTime();
+        int registered = 0;
+        int bridgedTags = 0;
+
+        for (var tagName : tagNames) {
+            var keys = TagManager.ITEM.getKey(tagName);
+            if (keys.isEmpty() || !isOreName(tagName)) {
+                continue;
+            }
+
+            var present = presentKeys(tagName);
+            boolean bridged = false;
+            for (var key : keys) {
+                if (present.contains(key) || present.contains(new ItemKey(key.item(), OreDictionary.WILDCARD_VALUE))) {
+                    continue;
+                }
+
+                PUSHED.computeIfAbsent(tagName, k -> ConcurrentHashMap.newKeySet()).add(key);
+                OreDictionary.registerOre(tagName, new ItemStack(key.item(), 1, key.metadata()));
+                registered++;
+                bridged = true;
+            }
+            if (bridged) {
+                bridgedTags++;
+            }
+        }
+
+        if (registered > 0) {
+            long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000L;
+            LOGGER.info("Registered {} tag entries under {} ore names in {} ms", registered, bridgedTags, elapsedMillis);
+        }
+    }
+
+    private static Set<ItemKey> presentKeys(String oreName) {
+        if (!OreDictionary.doesOreNameExist(oreName)) {
+            return Collections.emptySet();
+        }
+
+        var ores = OreDictionary.getOres(oreName, false);
+        var present = new ObjectOpenHashSet<ItemKey>(ores.size());
+        for (var ore : ores) {
+            if (!ore.isEmpty()) {
+                present.add(new ItemKey(ore.getItem(), ore.getMetadata() == OreDictionary.WILDCARD_VALUE ? OreDictionary.WILDCARD_VALUE : ItemKey.metadata(ore)));
+            }
+        }
+        return present;
+    }
+}
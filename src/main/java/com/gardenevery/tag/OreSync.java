@@ -1,75 +1,190 @@
 package com.gardenevery.tag;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.github.bsideup.jabel.Desugar;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraftforge.oredict.OreDictionary;
 
+import it.unimi.dsi.fastutil.objects.Object2ReferenceLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Imports the Ore Dictionary into the item tags.
+ * <p>
+ * The whole dictionary is read once at load completion (and on every reload, on the server thread before the
+ * rebuild moves to its worker). Registrations made after that are
+ * caught through {@code OreRegisterEvent}, queued, and applied as one batch per tick, so late entries from scripts
+ * or mods never need another full scan.
+ */
 final class OreSync {
 
     private OreSync() {}
 
     private static final Logger LOGGER = LogManager.getLogger("OreSync");
+    private static final ConcurrentLinkedQueue<OreEntries> QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicLong INCREMENTAL_ENTRIES = new AtomicLong();
+    private static volatile int bulkEntries;
 
     public static void oreDictionarySync() {
+        oreDictionarySync(TagManager.ITEM);
+    }
+
+    static void oreDictionarySync(Tag<ItemKey> store) {
+        oreDictionarySync(store, read());
+    }
+
+    /**
+     * Read the whole dictionary. The dictionary is not thread-safe, so this must run on the thread that registers
+     * ore entries; the result can then be applied anywhere.
+     */
+    static Entries read() {
+        long startTime = System.nanoTime();
         var oreNames = OreDictionary.getOreNames();
-        int totalEntries = 0;
-        int failedEntries = 0;
         LOGGER.info("=== Starting Ore Dictionary Sync ===");
         LOGGER.info("Found {} ore dictionary categories", oreNames.length);
 
-        for (var oreName : oreNames) {
-            if (oreName == null || oreName.isEmpty()) {
-                continue;
+        // the calling thread waits for the workers, so nothing registers entries while they read
+        List<OreEntries> collected = Arrays.stream(oreNames)
+                .parallel()
+                .filter(oreName -> oreName != null && !oreName.isEmpty())
+                .map(OreSync::collectEntries)
+                .collect(Collectors.toList());
+        return new Entries(collected, startTime);
+    }
+
+    static void oreDictionarySync(Tag<ItemKey> store, Entries entries) {
+        var batch = store.batch();
+        int failedEntries = 0;
+
+        for (var oreEntries : entries.collected()) {
+            if (!oreEntries.keys().isEmpty()) {
+                batch.addAll(oreEntries.oreName(), oreEntries.keys());
             }
+            failedEntries += oreEntries.failed();
+        }
 
-            List<ItemStack> ores = OreDictionary.getOres(oreName);
-            for (var oreStack : ores) {
-                if (oreStack.isEmpty()) {
-                    failedEntries++;
-                    continue;
-                }
+        int totalEntries = batch.size();
+        batch.commit();
+        // a full sync reads every entry applied incrementally before it
+        bulkEntries = totalEntries;
+        INCREMENTAL_ENTRIES.set(0);
 
-                try {
-                    if (oreStack.getMetadata() == OreDictionary.WILDCARD_VALUE && oreStack.getItem().getHasSubtypes()) {
-                        int synced = syncWildcardEntry(oreStack.getItem(), oreName);
-                        totalEntries += synced;
-                    } else {
-                        TagBuilder.item(oreName).add(oreStack.copy());
-                        totalEntries++;
-                    }
-                } catch (Exception e) {
-                    failedEntries++;
-                    LOGGER.debug("Sync failed: {} - {}", oreName, oreStack.getDisplayName(), e);
-                }
+        long elapsedMillis = (System.nanoTime() - entries.startTime()) / 1_000_000L;
+        LOGGER.info("=== Sync completed: {} successful, {} failed in {} ms ===", totalEntries, failedEntries, elapsedMillis);
+    }
+
+    private static OreEntries collectEntries(String oreName) {
+        List<ItemStack> ores = OreDictionary.getOres(oreName, false);
+        if (!AbstractTagBuilder.validateTagName(oreName)) {
+            return new OreEntries(oreName, Collections.emptyList(), ores.size());
+        }
+
+        var keys = new ObjectArrayList<ItemKey>(ores.size());
+        int failed = 0;
+
+        for (var oreStack : ores) {
+            if (!collectKeys(oreName, oreStack, keys)) {
+                failed++;
             }
         }
-        LOGGER.info("=== Sync completed: {} successful, {} failed ===", totalEntries, failedEntries);
+        return new OreEntries(oreName, keys, failed);
     }
 
-    private static int syncWildcardEntry(Item item, String tagName) {
-        int synced = 0;
-        for (int meta = 0; meta < 16; meta++) {
-            try {
-                var specificStack = new ItemStack(item, 1, meta);
-                if (!specificStack.isEmpty() && specificStack.getItem() == item) {
-                    TagBuilder.item(tagName).add(specificStack);
-                    synced++;
+    /**
+     * Queue an association registered after load completion; applied by {@link #flush()}
+     */
+    static void queue(String oreName, ItemStack ore) {
+        if (oreName == null || !AbstractTagBuilder.validateTagName(oreName)) {
+            return;
+        }
+
+        var keys = new ObjectArrayList<ItemKey>(1);
+        if (collectKeys(oreName, ore, keys) && !keys.isEmpty()) {
+            QUEUE.add(new OreEntries(oreName, keys, 0));
+        }
+    }
+
+    /**
+     * Apply the queued associations the item store does not have yet, as one batch
+     */
+    static void flush() {
+        // a reload publishes a store read from the dictionary, which would drop entries applied meanwhile
+        if (QUEUE.isEmpty() || TagReload.isRunning()) {
+            return;
+        }
+
+        var pending = new Object2ReferenceLinkedOpenHashMap<String, ObjectArrayList<ItemKey>>();
+        OreEntries entries;
+        while ((entries = QUEUE.poll()) != null) {
+            for (var key : entries.keys()) {
+                if (!TagManager.ITEM.hasTag(key, entries.oreName())) {
+                    pending.computeIfAbsent(entries.oreName(), k -> new ObjectArrayList<>()).add(key);
                 }
-            } catch (Exception e) {
-                //
             }
         }
 
-        if (synced == 0) {
-            var wildcardStack = new ItemStack(item, 1, OreDictionary.WILDCARD_VALUE);
-            TagBuilder.item(tagName).add(wildcardStack);
-            synced = 1;
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        var batch = TagManager.ITEM.batch();
+        for (var entry : pending.object2ReferenceEntrySet()) {
+            batch.addAll(entry.getKey(), entry.getValue());
         }
-        return synced;
+        int added = batch.size();
+        batch.commit();
+        INCREMENTAL_ENTRIES.addAndGet(added);
+        LOGGER.debug("Applied {} late Ore Dictionary entries under {} ore names", added, pending.size());
+    }
+
+    /**
+     * Get the number of entries imported by the last full sync
+     */
+    static int bulkEntries() {
+        return bulkEntries;
     }
+
+    /**
+     * Get the number of entries applied from registrations since the last full sync
+     */
+    static long incrementalEntries() {
+        return INCREMENTAL_ENTRIES.get();
+    }
+
+    /**
+     * Add the keys of one dictionary entry, skipping entries registered by {@link OreBridge}
+     *
+     * @return false if the entry is invalid
+     */
+    private static boolean collectKeys(String oreName, ItemStack oreStack, List<ItemKey> keys) {
+        if (oreStack == null || oreStack.isEmpty()) {
+            return false;
+        }
+
+        // a wildcard entry of an item with subtypes stays one ItemKey.WILDCARD key
+        var key = new ItemKey(oreStack.getItem(), ItemKey.metadata(oreStack));
+        if (!OreBridge.isPushed(oreName, key)) {
+            keys.add(key);
+        }
+        return true;
+    }
+
+    /**
+     * The dictionary as read by {@link #read()}
+     */
+    @Desugar
+    record Entries(List<OreEntries> collected, long startTime) {}
+
+    @Desugar
+    private record OreEntries(String oreName, List<ItemKey> keys, int failed) {}
 }
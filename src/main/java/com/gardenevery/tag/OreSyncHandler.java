@@ -0,0 +1,35 @@
+package com.gardenevery.tag;
+
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.oredict.OreDictionary;
+
+/**
+ * Follows Ore Dictionary registrations made after load completion; see {@link OreSync}.
+ * Queued entries are applied at the end of the next server tick, or of the next client tick while no server runs
+ * in this game and the client shows its own tags.
+ */
+public class OreSyncHandler {
+
+    @SubscribeEvent
+    public void onOreRegister(OreDictionary.OreRegisterEvent event) {
+        OreSync.queue(event.getName(), event.getOre());
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            OreSync.flush();
+        }
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        // an integrated server flushes on its own tick, and a remote server's tags are not the client's to change
+        if (event.phase == TickEvent.Phase.END && FMLCommonHandler.instance().getMinecraftServerInstance() == null
+                && !TagSync.showsServerTags()) {
+            OreSync.flush();
+        }
+    }
+}
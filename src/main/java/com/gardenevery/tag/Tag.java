@@ -1,20 +1,246 @@
 package com.gardenevery.tag;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import com.github.bsideup.jabel.Desugar;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import it.unimi.dsi.fastutil.objects.Object2ByteOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 
+/**
+ * Bidirectional tag store.
+ * <p>
+ * Concurrency model: registration happens on the main thread before {@link #freeze()}, and the mutable maps
+ * must not be read from other threads during that phase. After freezing, every read goes through the current
+ * {@link TagSnapshot}, which is immutable and published through a volatile field, so queries from any thread
+ * are lock-free and always see one complete snapshot. Mutations after freezing are copy-on-write: they are
+ * serialized, applied to a private copy of the published snapshot and published as a new snapshot in one
+ * volatile write. The published snapshot is never modified, and readers keep using it until the swap.
+ * <p>
+ * Nested tags are flattened into direct membership on every publish. The references and the keys each including
+ * tag holds on its own are kept after freezing, so a change to a nested tag also reaches the tags including it.
+ */
 final class Tag<T> {
 
-    Tag() {}
+    Tag() {
+        this(null);
+    }
+
+    /**
+     * @param type the namespace reported to {@link TagEvents} listeners, or null for a detached store
+     */
+    Tag(@Nullable TagType type) {
+        this.type = type;
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("Tag");
+    private static final int KEY_TAGS_EXPECTED = 2;
+    private static final byte VISITING = 1;
+    private static final byte FLATTENED = 2;
+
+    private Object2ReferenceOpenHashMap<String, ObjectOpenHashSet<T>> tagToKeys = new Object2ReferenceOpenHashMap<>();
+    private Object2ReferenceOpenHashMap<T, ObjectOpenHashSet<String>> keyToTags = new Object2ReferenceOpenHashMap<>();
+    private final Object2ReferenceOpenHashMap<String, ObjectOpenHashSet<String>> includes = new Object2ReferenceOpenHashMap<>();
+    /**
+     * Keys of each including tag apart from those it inherits, recorded when it is first flattened
+     */
+    private final Object2ReferenceOpenHashMap<String, ObjectOpenHashSet<T>> ownKeys = new Object2ReferenceOpenHashMap<>();
+    @Nullable
+    private volatile TagSnapshot<T> frozen;
+    private volatile long generation;
+    @Nullable
+    private final TagType type;
+
+    /**
+     * Flatten nested tags, compact the store into a read-only {@link TagSnapshot} and release the mutable maps.
+     */
+    public synchronized void freeze() {
+        if (frozen == null) {
+            publish();
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
+    @Nullable
+    TagSnapshot<T> snapshot() {
+        return frozen;
+    }
+
+    /**
+     * Atomically replace the whole store with a prebuilt, already flattened snapshot, dropping nested tag references
+     */
+    void publish(@Nonnull TagSnapshot<T> snapshot) {
+        publish(new Published<>(snapshot, Collections.emptyMap(), Collections.emptyMap()));
+    }
+
+    /**
+     * Atomically replace the whole store with a snapshot and the nested tag references it was flattened from
+     */
+    synchronized void publish(@Nonnull Published<T> published) {
+        includes.clear();
+        ownKeys.clear();
+        for (var entry : published.includes().entrySet()) {
+            includes.put(entry.getKey(), new ObjectOpenHashSet<>(entry.getValue()));
+        }
+        for (var entry : published.ownKeys().entrySet()) {
+            ownKeys.put(entry.getKey(), new ObjectOpenHashSet<>(entry.getValue()));
+        }
+        swap(published.snapshot());
+    }
+
+    /**
+     * Publish a snapshot and release the mutable maps, keeping the nested tag references
+     */
+    private void swap(@Nonnull TagSnapshot<T> snapshot) {
+        swap(snapshot, null);
+    }
+
+    /**
+     * @param changedTags the tags that changed, if known, so listeners are told without comparing every tag
+     */
+    private void swap(@Nonnull TagSnapshot<T> snapshot, @Nullable Set<String> changedTags) {
+        var previous = frozen;
+        tagToKeys.clear();
+        tagToKeys.trim();
+        keyToTags.clear();
+        keyToTags.trim();
+        frozen = snapshot;
+        generation++;
+        if (type != null) {
+            TagEvents.published(type, previous, snapshot, changedTags);
+        }
+    }
+
+    /**
+     * The current snapshot with copies of its nested tag references, or null before freezing
+     */
+    @Nullable
+    synchronized Published<T> published() {
+        var snapshot = frozen;
+        if (snapshot == null) {
+            return null;
+        }
+
+        var includesCopy = new Object2ReferenceOpenHashMap<String, Set<String>>(includes.size());
+        for (var entry : includes.object2ReferenceEntrySet()) {
+            includesCopy.put(entry.getKey(), new ObjectOpenHashSet<>(entry.getValue()));
+        }
+        var ownKeysCopy = new Object2ReferenceOpenHashMap<String, Set<T>>(ownKeys.size());
+        for (var entry : ownKeys.object2ReferenceEntrySet()) {
+            ownKeysCopy.put(entry.getKey(), new ObjectOpenHashSet<>(entry.getValue()));
+        }
+        return new Published<>(snapshot, includesCopy, ownKeysCopy);
+    }
+
+    /**
+     * Estimated bytes of the nested tag references kept beside the snapshot; names and keys are shared with it
+     */
+    synchronized long estimateReferenceBytes() {
+        long bytes = TagMemory.hashTable(includes.size(), TagMemory.REF) + TagMemory.hashTable(ownKeys.size(), TagMemory.REF);
+        for (var nested : includes.values()) {
+            bytes += TagMemory.hashTable(nested.size(), 0);
+        }
+        for (var keys : ownKeys.values()) {
+            bytes += TagMemory.hashTable(keys.size(), 0);
+        }
+        return bytes;
+    }
+
+    /**
+     * Incremented every time a new snapshot is published, starting with {@link #freeze()}
+     */
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * Detached, unfrozen copy of the current entries and nested tag references
+     */
+    synchronized Tag<T> copy() {
+        var copy = new Tag<T>();
+        var snapshot = frozen;
+        if (snapshot != null) {
+            copy.frozen = snapshot;
+            copy.copyForWrite();
+            copy.frozen = null;
+        } else {
+            copy.tagToKeys = reserve(copy.tagToKeys, tagToKeys.size());
+            copy.keyToTags = reserve(copy.keyToTags, keyToTags.size());
+            for (var entry : tagToKeys.object2ReferenceEntrySet()) {
+                copy.tagToKeys.put(entry.getKey(), new ObjectOpenHashSet<>(entry.getValue()));
+            }
+            for (var entry : keyToTags.object2ReferenceEntrySet()) {
+                copy.keyToTags.put(entry.getKey(), new ObjectOpenHashSet<>(entry.getValue()));
+            }
+        }
+
+        for (var entry : includes.object2ReferenceEntrySet()) {
+            copy.includes.put(entry.getKey(), new ObjectOpenHashSet<>(entry.getValue()));
+        }
+        for (var entry : ownKeys.object2ReferenceEntrySet()) {
+            copy.ownKeys.put(entry.getKey(), new ObjectOpenHashSet<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private void publish() {
+        flattenIncludes();
+        swap(TagSnapshot.of(tagToKeys));
+    }
+
+    /**
+     * Copy the published snapshot into the private maps for a copy-on-write change; readers keep the snapshot
+     */
+    private boolean copyForWrite() {
+        var snapshot = frozen;
+        if (snapshot == null) {
+            return false;
+        }
+
+        tagToKeys = reserve(tagToKeys, snapshot.names.length);
+        keyToTags = reserve(keyToTags, snapshot.keys.length);
+
+        for (int tagId = 0; tagId < snapshot.names.length; tagId++) {
+            var ids = snapshot.tagKeys[tagId];
+            var keys = new ObjectOpenHashSet<T>(ids.length);
+            for (int keyId : ids) {
+                keys.add(snapshot.key(keyId));
+            }
+            tagToKeys.put(snapshot.names[tagId], keys);
+        }
 
-    private final Object2ReferenceOpenHashMap<String, ObjectOpenHashSet<T>> tagToKeys = new Object2ReferenceOpenHashMap<>();
-    private final Object2ReferenceOpenHashMap<T, ObjectOpenHashSet<String>> keyToTags = new Object2ReferenceOpenHashMap<>();
+        for (int keyId = 0; keyId < snapshot.keys.length; keyId++) {
+            var ids = snapshot.keyTags[keyId];
+            var tags = new ObjectOpenHashSet<String>(ids.length);
+            for (int tagId : ids) {
+                tags.add(snapshot.names[tagId]);
+            }
+            keyToTags.put(snapshot.key(keyId), tags);
+        }
+        return true;
+    }
 
     public Set<String> getTag(@Nonnull T key) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getTag(key);
+        }
+
         var tags = keyToTags.get(key);
 
         if (tags == null) {
@@ -25,6 +251,11 @@ final class Tag<T> {
     }
 
     public Set<T> getKey(@Nonnull String tagName) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getKey(tagName);
+        }
+
         var keys = tagToKeys.get(tagName);
 
         if (keys == null) {
@@ -34,15 +265,75 @@ final class Tag<T> {
         }
     }
 
+    /**
+     * Visit every key of a tag without building a set view
+     */
+    public void forEachKey(@Nonnull String tagName, @Nonnull Consumer<? super T> action) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            for (int keyId : snapshot.keyIds(snapshot.tagId(tagName))) {
+                action.accept(snapshot.key(keyId));
+            }
+            return;
+        }
+
+        var keys = tagToKeys.get(tagName);
+        if (keys != null) {
+            keys.forEach(action);
+        }
+    }
+
     public Set<String> getAllTag() {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getAllTag();
+        }
         return Collections.unmodifiableSet(tagToKeys.keySet());
     }
 
+    /**
+     * Tags of a key in alphabetical order; a view over the snapshot once frozen
+     */
+    public List<String> getSortedTag(@Nonnull T key) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getSortedTag(key);
+        }
+        return sorted(keyToTags.get(key));
+    }
+
+    public List<String> getSortedAllTag() {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getSortedAllTag();
+        }
+        return sorted(tagToKeys.keySet());
+    }
+
+    private static List<String> sorted(@Nullable Set<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        var sorted = new ObjectArrayList<>(tags);
+        Collections.sort(sorted);
+        return Collections.unmodifiableList(sorted);
+    }
+
     public Set<T> getAllKey() {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getAllKey();
+        }
         return Collections.unmodifiableSet(keyToTags.keySet());
     }
 
     public boolean hasTag(@Nonnull T key, @Nonnull String tagName) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.hasTag(key, tagName);
+        }
+
         var tags = keyToTags.get(key);
 
         if (tags == null) {
@@ -52,6 +343,11 @@ final class Tag<T> {
     }
 
     public boolean hasAnyTag(@Nonnull T key, @Nonnull Set<String> tagNames) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.hasAnyTag(key, tagNames);
+        }
+
         var tags = keyToTags.get(key);
         if (tags == null) {
             return false;
@@ -65,21 +361,287 @@ final class Tag<T> {
         return false;
     }
 
-    public void createTag(@Nonnull String tagName, @Nonnull T key) {
+    public boolean hasAllTags(@Nonnull T key, @Nonnull Set<String> tagNames) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.hasAllTags(key, tagNames);
+        }
+
+        var tags = keyToTags.get(key);
+        return tags != null && tags.containsAll(tagNames);
+    }
+
+    /**
+     * Make every key of {@code nestedTag} a member of the given tags.
+     * Nesting is resolved into direct membership when the store is frozen and again whenever a frozen store
+     * changes, so lookups never follow references.
+     */
+    public synchronized void includeTag(@Nonnull Set<String> tagNames, @Nonnull String nestedTag) {
+        boolean wasFrozen = copyForWrite();
+        for (var tagName : tagNames) {
+            includes.computeIfAbsent(tagName, k -> new ObjectOpenHashSet<>()).add(nestedTag);
+        }
+        if (wasFrozen) {
+            publish();
+        }
+    }
+
+    /**
+     * Set every including tag to its own keys plus the keys of the tags it includes, innermost first
+     */
+    private void flattenIncludes() {
+        if (includes.isEmpty()) {
+            return;
+        }
+
+        for (var tagName : includes.keySet()) {
+            if (!ownKeys.containsKey(tagName)) {
+                var keys = tagToKeys.get(tagName);
+                ownKeys.put(tagName, keys == null ? new ObjectOpenHashSet<>() : new ObjectOpenHashSet<>(keys));
+            }
+        }
+
+        var states = new Object2ByteOpenHashMap<String>(includes.size());
+        var path = new ObjectArrayList<String>();
+        for (var tagName : includes.keySet()) {
+            if (states.getByte(tagName) == 0) {
+                flatten(tagName, states, path);
+            }
+        }
+    }
+
+    private void flatten(String tagName, Object2ByteOpenHashMap<String> states, ObjectArrayList<String> path) {
+        states.put(tagName, VISITING);
+        path.add(tagName);
+
+        var nested = includes.get(tagName);
+        if (nested != null) {
+            var keys = new ObjectOpenHashSet<>(ownKeys.get(tagName));
+            for (var nestedTag : nested) {
+                byte state = states.getByte(nestedTag);
+                if (state == VISITING) {
+                    LOGGER.warn("Tag cycle {} -> {}, ignoring the last reference.", String.join(" -> ", path), nestedTag);
+                    continue;
+                }
+                if (state == 0) {
+                    flatten(nestedTag, states, path);
+                }
+
+                var nestedKeys = tagToKeys.get(nestedTag);
+                if (nestedKeys == null) {
+                    LOGGER.debug("Tag {} includes {}, which has no entries.", tagName, nestedTag);
+                    continue;
+                }
+                keys.addAll(nestedKeys);
+            }
+            replaceKeys(tagName, keys);
+        }
+
+        path.remove(path.size() - 1);
+        states.put(tagName, FLATTENED);
+    }
+
+    /**
+     * Make {@code keys} the members of a tag, updating both directions
+     */
+    private void replaceKeys(String tagName, ObjectOpenHashSet<T> keys) {
+        var current = tagToKeys.get(tagName);
+        if (current != null) {
+            for (var key : current) {
+                if (!keys.contains(key)) {
+                    var tagsForKey = keyToTags.get(key);
+                    tagsForKey.remove(tagName);
+                    if (tagsForKey.isEmpty()) {
+                        keyToTags.remove(key);
+                    }
+                }
+            }
+        }
+
+        if (keys.isEmpty()) {
+            tagToKeys.remove(tagName);
+            return;
+        }
+
+        for (var key : keys) {
+            if (current == null || !current.contains(key)) {
+                keyToTags.computeIfAbsent(key, k -> new ObjectOpenHashSet<>()).add(tagName);
+            }
+        }
+        tagToKeys.put(tagName, keys);
+    }
+
+    public synchronized void createTag(@Nonnull String tagName, @Nonnull T key) {
+        boolean wasFrozen = copyForWrite();
+        createTagMutable(tagName, key);
+        if (wasFrozen) {
+            publish();
+        }
+    }
+
+    private void createTagMutable(@Nonnull String tagName, @Nonnull T key) {
         tagToKeys.computeIfAbsent(tagName, k -> new ObjectOpenHashSet<>()).add(key);
         keyToTags.computeIfAbsent(key, k -> new ObjectOpenHashSet<>()).add(tagName);
+        var own = ownKeys.get(tagName);
+        if (own != null) {
+            own.add(key);
+        }
     }
 
-    public void createTag(@Nonnull Set<String> tagNames, @Nonnull T key) {
-        var tagsForKey = keyToTags.computeIfAbsent(key, k -> new ObjectOpenHashSet<>());
+    public synchronized void createTag(@Nonnull Set<String> tagNames, @Nonnull T key) {
+        boolean wasFrozen = copyForWrite();
+        createTagMutable(tagNames, key);
+        if (wasFrozen) {
+            publish();
+        }
+    }
+
+    private void createTagMutable(@Nonnull Set<String> tagNames, @Nonnull T key) {
+        var tagsForKey = keyToTags.get(key);
+        if (tagsForKey == null) {
+            tagsForKey = new ObjectOpenHashSet<>(tagNames.size());
+            keyToTags.put(key, tagsForKey);
+        }
         tagsForKey.addAll(tagNames);
 
         for (var tag : tagNames) {
             tagToKeys.computeIfAbsent(tag, k -> new ObjectOpenHashSet<>()).add(key);
+            var own = ownKeys.get(tag);
+            if (own != null) {
+                own.add(key);
+            }
+        }
+    }
+
+    /**
+     * Add many associations at once, sizing the maps and sets up front.
+     * A frozen store publishes a single new snapshot for the whole batch. When every tag already exists and none
+     * is nested in another, the new snapshot copies only the rows of the changed tags and keys.
+     */
+    public synchronized void addAll(@Nonnull Map<String, ? extends Collection<T>> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        var snapshot = frozen;
+        if (snapshot != null && !isIncluded(entries.keySet())) {
+            var appended = snapshot.withAdded(entries);
+            if (appended != null) {
+                if (appended != snapshot) {
+                    appendOwnKeys(entries);
+                    swap(appended, changedRows(snapshot, appended, entries.keySet()));
+                }
+                return;
+            }
+        }
+
+        boolean wasFrozen = copyForWrite();
+        addAllMutable(entries);
+        if (wasFrozen) {
+            publish();
+        }
+    }
+
+    /**
+     * Check if any of the tags is nested in another, so a change to it has to be flattened into that tag
+     */
+    private boolean isIncluded(Set<String> tagNames) {
+        for (var nested : includes.values()) {
+            for (var tagName : tagNames) {
+                if (nested.contains(tagName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void appendOwnKeys(Map<String, ? extends Collection<T>> entries) {
+        for (var entry : entries.entrySet()) {
+            var own = ownKeys.get(entry.getKey());
+            if (own != null) {
+                own.addAll(entry.getValue());
+            }
+        }
+    }
+
+    private static <T> Set<String> changedRows(TagSnapshot<T> before, TagSnapshot<T> after, Set<String> tagNames) {
+        var changed = new ObjectOpenHashSet<String>(tagNames.size());
+        for (var tagName : tagNames) {
+            int tagId = after.tagId(tagName);
+            if (after.tagKeys[tagId] != before.tagKeys[tagId]) {
+                changed.add(tagName);
+            }
+        }
+        return Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * Start collecting associations to be committed through {@link #addAll(Map)}
+     */
+    public TagBatch<T> batch() {
+        return new TagBatch<>(this);
+    }
+
+    private void addAllMutable(@Nonnull Map<String, ? extends Collection<T>> entries) {
+        int total = 0;
+        for (var keys : entries.values()) {
+            total += keys.size();
+        }
+
+        tagToKeys = reserve(tagToKeys, entries.size());
+        keyToTags = reserve(keyToTags, total);
+
+        for (var entry : entries.entrySet()) {
+            var tagName = entry.getKey();
+            var keys = entry.getValue();
+
+            var keysForTag = tagToKeys.get(tagName);
+            if (keysForTag == null) {
+                keysForTag = new ObjectOpenHashSet<>(keys.size());
+                tagToKeys.put(tagName, keysForTag);
+            }
+            keysForTag.addAll(keys);
+            var own = ownKeys.get(tagName);
+            if (own != null) {
+                own.addAll(keys);
+            }
+
+            for (var key : keys) {
+                var tagsForKey = keyToTags.get(key);
+                if (tagsForKey == null) {
+                    tagsForKey = new ObjectOpenHashSet<>(KEY_TAGS_EXPECTED);
+                    keyToTags.put(key, tagsForKey);
+                }
+                tagsForKey.add(tagName);
+            }
         }
     }
 
-    public void removeTag(@Nonnull String tagName) {
+    /**
+     * Return a map able to take {@code extra} more entries without rehashing
+     */
+    private static <K, V> Object2ReferenceOpenHashMap<K, V> reserve(Object2ReferenceOpenHashMap<K, V> map, int extra) {
+        if (extra <= map.size()) {
+            return map;
+        }
+
+        var reserved = new Object2ReferenceOpenHashMap<K, V>(map.size() + extra);
+        reserved.putAll(map);
+        return reserved;
+    }
+
+    public synchronized void removeTag(@Nonnull String tagName) {
+        boolean wasFrozen = copyForWrite();
+        removeTagMutable(tagName);
+        if (wasFrozen) {
+            publish();
+        }
+    }
+
+    private void removeTagMutable(@Nonnull String tagName) {
+        includes.remove(tagName);
+        ownKeys.remove(tagName);
         var keys = tagToKeys.remove(tagName);
         if (keys == null) {
             return;
@@ -96,9 +658,19 @@ final class Tag<T> {
         }
     }
 
-    public void removeTag(@Nonnull Set<String> tagNames) {
+    public synchronized void removeTag(@Nonnull Set<String> tagNames) {
+        boolean wasFrozen = copyForWrite();
+        removeTagMutable(tagNames);
+        if (wasFrozen) {
+            publish();
+        }
+    }
+
+    private void removeTagMutable(@Nonnull Set<String> tagNames) {
         var removals = new Object2ReferenceOpenHashMap<T, ObjectOpenHashSet<String>>();
         for (var tag : tagNames) {
+            includes.remove(tag);
+            ownKeys.remove(tag);
             var keys = tagToKeys.remove(tag);
             if (keys == null) {
                 continue;
@@ -123,7 +695,20 @@ final class Tag<T> {
         }
     }
 
-    public void removeTagKey(@Nonnull String tagName, @Nonnull T key) {
+    public synchronized void removeTagKey(@Nonnull String tagName, @Nonnull T key) {
+        boolean wasFrozen = copyForWrite();
+        removeTagKeyMutable(tagName, key);
+        if (wasFrozen) {
+            publish();
+        }
+    }
+
+    private void removeTagKeyMutable(@Nonnull String tagName, @Nonnull T key) {
+        var own = ownKeys.get(tagName);
+        if (own != null) {
+            own.remove(key);
+        }
+
         var keysForTag = tagToKeys.get(tagName);
         if (keysForTag != null) {
             keysForTag.remove(key);
@@ -141,7 +726,15 @@ final class Tag<T> {
         }
     }
 
-    public void removeTagKey(@Nonnull Set<String> tagNames, @Nonnull T key) {
+    public synchronized void removeTagKey(@Nonnull Set<String> tagNames, @Nonnull T key) {
+        boolean wasFrozen = copyForWrite();
+        removeTagKeyMutable(tagNames, key);
+        if (wasFrozen) {
+            publish();
+        }
+    }
+
+    private void removeTagKeyMutable(@Nonnull Set<String> tagNames, @Nonnull T key) {
         var tagsForKey = keyToTags.get(key);
         if (tagsForKey != null) {
             tagsForKey.removeAll(tagNames);
@@ -151,6 +744,11 @@ final class Tag<T> {
         }
 
         for (var tagName : tagNames) {
+            var own = ownKeys.get(tagName);
+            if (own != null) {
+                own.remove(key);
+            }
+
             var keysForTag = tagToKeys.get(tagName);
             if (keysForTag != null) {
                 keysForTag.remove(key);
@@ -161,28 +759,54 @@ final class Tag<T> {
         }
     }
 
-    public void clean() {
+    public synchronized void clean() {
+        includes.clear();
+        ownKeys.clear();
         tagToKeys.clear();
         keyToTags.clear();
+        if (frozen != null) {
+            publish(TagSnapshot.empty());
+        }
     }
 
     public boolean doesTagExist(@Nonnull String tagName) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.doesTagExist(tagName);
+        }
         return tagToKeys.containsKey(tagName);
     }
 
     public boolean containsKey(@Nonnull T key) {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.containsKey(key);
+        }
         return keyToTags.containsKey(key);
     }
 
     public int getTagCount() {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getTagCount();
+        }
         return tagToKeys.size();
     }
 
     public int getKeyCount() {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getKeyCount();
+        }
         return keyToTags.size();
     }
 
     public int getAssociations() {
+        var snapshot = frozen;
+        if (snapshot != null) {
+            return snapshot.getAssociations();
+        }
+
         int count = 0;
 
         for (var entry : tagToKeys.entrySet()) {
@@ -190,4 +814,10 @@ final class Tag<T> {
         }
         return count;
     }
+
+    /**
+     * A snapshot with the nested tag references and own keys of its including tags
+     */
+    @Desugar
+    record Published<T>(TagSnapshot<T> snapshot, Map<String, ? extends Set<String>> includes, Map<String, ? extends Set<T>> ownKeys) {}
 }
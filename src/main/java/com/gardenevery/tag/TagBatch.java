@@ -0,0 +1,66 @@
+package com.gardenevery.tag;
+
+import java.util.Collection;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Accumulates associations for a {@link Tag} and commits them in one pass.
+ * <p> Example: var batch = TagManager.ITEM.batch(); batch.add("forge:ingots", key); batch.commit();
+ */
+@SuppressWarnings("UnusedReturnValue")
+final class TagBatch<T> {
+
+    private final Tag<T> target;
+    private final Object2ReferenceOpenHashMap<String, ObjectArrayList<T>> entries = new Object2ReferenceOpenHashMap<>();
+    private int size;
+
+    TagBatch(@Nonnull Tag<T> target) {
+        this.target = target;
+    }
+
+    public TagBatch<T> add(@Nonnull String tagName, @Nonnull T key) {
+        keysFor(tagName).add(key);
+        size++;
+        return this;
+    }
+
+    public TagBatch<T> add(@Nonnull Set<String> tagNames, @Nonnull T key) {
+        for (var tagName : tagNames) {
+            add(tagName, key);
+        }
+        return this;
+    }
+
+    public TagBatch<T> addAll(@Nonnull String tagName, @Nonnull Collection<T> keys) {
+        keysFor(tagName).addAll(keys);
+        size += keys.size();
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void commit() {
+        target.addAll(entries);
+        entries.clear();
+        size = 0;
+    }
+
+    private ObjectArrayList<T> keysFor(String tagName) {
+        var keys = entries.get(tagName);
+        if (keys == null) {
+            keys = new ObjectArrayList<>();
+            entries.put(tagName, keys);
+        }
+        return keys;
+    }
+}
@@ -22,6 +22,7 @@ public final class TagBuilder {
     /**
      * Create an item tag builder
      * <p> Example:TagBuilder.item("minecraft:weapon").add(itemStack).add(itemStack);
+     * <p> TagBuilder.item("minecraft:weapon").addTag("minecraft:swords");
      * <p> TagBuilder.item("minecraft:weapon").removeTag();
      * <p> TagBuilder.item("minecraft:weapon").removeKey(itemStack).removeKey(itemStack);
      *
@@ -45,7 +46,7 @@ public final class TagBuilder {
 
     /**
      * Create a block tag builder
-     * <p> Example: TagBuilder.block("minecraft:log").add(block).add(block);
+     * <p> Example: TagBuilder.block("minecraft:log").add(block).add(blockState);
      * <p> TagBuilder.block("minecraft:log").removeTag();
      * <p> TagBuilder.block("minecraft:log").removeKey(block).removeKey(block);
      *
@@ -0,0 +1,446 @@
+package com.gardenevery.tag;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.item.Item;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.oredict.OreDictionary;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Binary cache of the frozen tag stores in {@code config/tag/snapshot.bin}.
+ * <p>
+ * Layout: magic, format version, fingerprint, then one {@link TagCodec} section per store with keys written as
+ * registry names (plus metadata where needed), then the store's nested tag references with the own keys of each
+ * including tag. Sections mirror the {@link TagSnapshot} layout, so loading needs no hashing beyond the registry
+ * lookups. The fingerprint covers this mod's version, every mod's ID, version and
+ * jar, the tags registered from code, the content of every file under {@code config/tag} and the Ore
+ * Dictionary; any change falls back to a full rebuild.
+ */
+final class TagCache {
+
+    private TagCache() {}
+
+    private static final Logger LOGGER = LogManager.getLogger("TagCache");
+    private static final int MAGIC = 0x54414753;
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_SIZE = 8 + 20;
+    static final String FILE_NAME = "snapshot.bin";
+    private static byte[] oreDictionaryHash;
+    private static byte[] baselineHash;
+
+    private static final TagCodec.KeyCodec<ItemKey> ITEM_CODEC = new TagCodec.KeyCodec<ItemKey>() {
+        @Override
+        public void write(ItemKey key, TagCodec.Output out) {
+            out.string(String.valueOf(key.item().getRegistryName()));
+            out.varInt(TagCodec.zigZag(key.metadata()));
+        }
+
+        @Override
+        public ItemKey read(TagCodec.Input in) {
+            var item = Item.REGISTRY.getObject(new ResourceLocation(in.string()));
+            int metadata = TagCodec.unZigZag(in.varInt());
+            return item == null ? null : new ItemKey(item, metadata);
+        }
+    };
+
+    private static final TagCodec.KeyCodec<Fluid> FLUID_CODEC = new TagCodec.KeyCodec<Fluid>() {
+        @Override
+        public void write(Fluid fluid, TagCodec.Output out) {
+            out.string(fluid.getName());
+        }
+
+        @Override
+        public Fluid read(TagCodec.Input in) {
+            return FluidRegistry.getFluid(in.string());
+        }
+    };
+
+    private static final TagCodec.KeyCodec<Block> BLOCK_CODEC = new TagCodec.KeyCodec<Block>() {
+        @Override
+        public void write(Block block, TagCodec.Output out) {
+            out.string(String.valueOf(block.getRegistryName()));
+        }
+
+        @Override
+        public Block read(TagCodec.Input in) {
+            return block(in.string());
+        }
+    };
+
+    private static final TagCodec.KeyCodec<IBlockState> BLOCK_STATE_CODEC = new TagCodec.KeyCodec<IBlockState>() {
+        @Override
+        public void write(IBlockState state, TagCodec.Output out) {
+            var block = state.getBlock();
+            out.string(String.valueOf(block.getRegistryName()));
+            out.varInt(block.getMetaFromState(state));
+        }
+
+        @Override
+        public IBlockState read(TagCodec.Input in) {
+            var block = block(in.string());
+            int metadata = in.varInt();
+            if (block == null) {
+                return null;
+            }
+
+            // metadata a block no longer uses falls back to another state
+            var state = block.getStateFromMeta(metadata);
+            return block.getMetaFromState(state) == metadata ? BlockStateIndex.canonical(state) : null;
+        }
+    };
+
+    private static final TagCodec.KeyCodec<Class<? extends TileEntity>> TILE_ENTITY_CODEC = new TagCodec.KeyCodec<Class<? extends TileEntity>>() {
+        @Override
+        public void write(Class<? extends TileEntity> type, TagCodec.Output out) {
+            out.string(type.getName());
+        }
+
+        @Override
+        public Class<? extends TileEntity> read(TagCodec.Input in) {
+            return tileEntityClass(in.string());
+        }
+    };
+
+    /**
+     * Publish the cached stores if the cache matches the current game, otherwise leave the stores untouched
+     */
+    public static boolean load() {
+        if (!TagConfig.snapshotCache) {
+            return false;
+        }
+
+        var path = file().toPath();
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+
+        long startTime = System.nanoTime();
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // check the header with a plain read so a stale file is never mapped and stays replaceable
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                return false;
+            }
+
+            var stored = new byte[20];
+            header.get(stored);
+            if (!Arrays.equals(stored, fingerprint())) {
+                LOGGER.info("Tag snapshot cache is out of date, rebuilding tags");
+                return false;
+            }
+
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.position(HEADER_SIZE);
+            var in = new TagCodec.Input(buffer);
+
+            var items = readStore(in, ITEM_CODEC);
+            var fluids = readStore(in, FLUID_CODEC);
+            var blocks = readStore(in, BLOCK_CODEC);
+            var states = readStore(in, BLOCK_STATE_CODEC);
+            var tileEntities = readStore(in, TILE_ENTITY_CODEC);
+
+            // publish only once every section has resolved
+            TagManager.ITEM.publish(items);
+            TagManager.FLUID.publish(fluids);
+            TagManager.BLOCK.publish(blocks);
+            TagManager.BLOCK_STATE.publish(states);
+            TagManager.TILE_ENTITY.publish(tileEntities);
+
+            long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000L;
+            LOGGER.info("Loaded {} tags from the snapshot cache in {} ms", TagHelper.tagCount(), elapsedMillis);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to load the tag snapshot cache, rebuilding tags", e);
+            return false;
+        }
+    }
+
+    /**
+     * Write the frozen stores to the cache file
+     */
+    public static void save() {
+        if (!TagConfig.snapshotCache) {
+            return;
+        }
+
+        var path = file().toPath();
+        var temp = path.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            var body = new TagCodec.Output();
+            writeStore(body, TagManager.ITEM, ITEM_CODEC);
+            writeStore(body, TagManager.FLUID, FLUID_CODEC);
+            writeStore(body, TagManager.BLOCK, BLOCK_CODEC);
+            writeStore(body, TagManager.BLOCK_STATE, BLOCK_STATE_CODEC);
+            writeStore(body, TagManager.TILE_ENTITY, TILE_ENTITY_CODEC);
+            var bytes = body.toByteArray();
+
+            Files.createDirectories(path.getParent());
+            var data = ByteBuffer.allocate(HEADER_SIZE + bytes.length)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .put(fingerprint())
+                    .put(bytes)
+                    .array();
+            Files.write(temp, data);
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOGGER.debug("Wrote tag snapshot cache ({} bytes)", data.length);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to write the tag snapshot cache", e);
+        }
+    }
+
+    static File file() {
+        return new File(new File(Loader.instance().getConfigDir(), TagLoader.CONFIG_DIR), FILE_NAME);
+    }
+
+    static <T> void writeStore(TagCodec.Output out, Tag<T> store, TagCodec.KeyCodec<T> codec) {
+        var published = store.published();
+        if (published == null) {
+            throw new IllegalStateException("Tag store is not frozen");
+        }
+
+        var snapshot = published.snapshot();
+        TagCodec.writeAllTags(out, snapshot, codec);
+        // every key belongs to a tag, so the section keeps the snapshot's key IDs
+        out.varInt(published.includes().size());
+        for (var entry : published.includes().entrySet()) {
+            out.string(entry.getKey());
+            out.varInt(entry.getValue().size());
+            for (var nestedTag : entry.getValue()) {
+                out.string(nestedTag);
+            }
+
+            var ownKeys = published.ownKeys().get(entry.getKey());
+            var ids = new IntArrayList(ownKeys == null ? 0 : ownKeys.size());
+            if (ownKeys != null) {
+                for (var key : ownKeys) {
+                    int keyId = snapshot.keyId(key);
+                    if (keyId >= 0) {
+                        ids.add(keyId);
+                    }
+                }
+            }
+            out.varInt(ids.size());
+            for (int keyId : ids) {
+                out.varInt(keyId);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Tag.Published<T> readStore(TagCodec.Input in, TagCodec.KeyCodec<T> codec) {
+        var section = TagCodec.readTags(in, codec);
+        var distinct = new ObjectOpenHashSet<>(section.keys().length);
+        for (var key : section.keys()) {
+            if (key == null) {
+                throw new IllegalStateException("A cached key no longer exists");
+            }
+            if (!distinct.add(key)) {
+                // e.g. a block whose metadata now maps to another state
+                throw new IllegalStateException("Cached key " + key + " resolves to an entry listed twice");
+            }
+        }
+        var snapshot = TagSnapshot.<T>of(section.names(), section.keys(), section.tagKeys());
+
+        int parents = in.varInt();
+        var includes = new Object2ReferenceOpenHashMap<String, Set<String>>(parents);
+        var ownKeys = new Object2ReferenceOpenHashMap<String, Set<T>>(parents);
+        for (int i = 0; i < parents; i++) {
+            var tagName = in.string();
+            var nested = new ObjectOpenHashSet<String>();
+            for (int j = in.varInt(); j > 0; j--) {
+                nested.add(in.string());
+            }
+            var own = new ObjectOpenHashSet<T>();
+            for (int j = in.varInt(); j > 0; j--) {
+                own.add((T) section.keys()[in.varInt()]);
+            }
+            includes.put(tagName, nested);
+            ownKeys.put(tagName, own);
+        }
+        return new Tag.Published<>(snapshot, includes, ownKeys);
+    }
+
+    @Nullable
+    private static Block block(String name) {
+        var id = new ResourceLocation(name);
+        return Block.REGISTRY.containsKey(id) ? Block.REGISTRY.getObject(id) : null;
+    }
+
+    @Nullable
+    static Class<? extends TileEntity> tileEntityClass(String name) {
+        try {
+            var type = Class.forName(name, false, TagCache.class.getClassLoader());
+            return TileEntity.class.isAssignableFrom(type) ? type.asSubclass(TileEntity.class) : null;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * SHA-1 over this mod's version, the mod list, the tags registered from code, the files under config/tag and
+     * the Ore Dictionary
+     */
+    private static byte[] fingerprint() throws IOException {
+        var digest = sha1();
+        update(digest, FORMAT_VERSION + "|" + Tags.VERSION);
+        for (var mod : Loader.instance().getActiveModList()) {
+            // jar names and sizes only: hashing every jar would cost more than the rebuild it saves
+            var source = mod.getSource();
+            update(digest, mod.getModId() + "|" + mod.getVersion() + "|" + (source == null ? "" : source.getName() + "|" + source.length()));
+        }
+
+        if (baselineHash == null) {
+            baselineHash = baselineHash(TagReload.baseline());
+        }
+        digest.update(baselineHash);
+        hashFiles(digest, new File(Loader.instance().getConfigDir(), TagLoader.CONFIG_DIR).toPath());
+        if (oreDictionaryHash == null) {
+            oreDictionaryHash = oreDictionaryHash();
+        }
+        digest.update(oreDictionaryHash);
+        return digest.digest();
+    }
+
+    /**
+     * Path and content of every file under a directory except the cache itself, so rewriting a file with the
+     * same content keeps the hash
+     */
+    static void hashFiles(MessageDigest digest, Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(p -> !p.getParent().equals(dir) || !p.getFileName().toString().startsWith(FILE_NAME))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (var file : files) {
+            update(digest, dir.relativize(file).toString().replace(File.separatorChar, '/'));
+            var bytes = Files.readAllBytes(file);
+            update(digest, String.valueOf(bytes.length));
+            digest.update(bytes);
+        }
+    }
+
+    /**
+     * The tags registered from code, by content: tag names, the encoded keys of each tag in sorted order and the
+     * nested tag references. Scripts and config-dependent registrations change it without touching any file.
+     */
+    static byte[] baselineHash(@Nullable TagStores baseline) throws IOException {
+        var digest = sha1();
+        if (baseline != null) {
+            hashStore(digest, baseline.items(), ITEM_CODEC);
+            hashStore(digest, baseline.fluids(), FLUID_CODEC);
+            hashStore(digest, baseline.blocks(), BLOCK_CODEC);
+            hashStore(digest, baseline.blockStates(), BLOCK_STATE_CODEC);
+            hashStore(digest, baseline.tileEntities(), TILE_ENTITY_CODEC);
+        }
+        return digest.digest();
+    }
+
+    static <T> void hashStore(MessageDigest digest, Tag<T> store, TagCodec.KeyCodec<T> codec) {
+        var copy = store.copy();
+        copy.freeze();
+        var published = copy.published();
+        var snapshot = published.snapshot();
+
+        update(digest, String.valueOf(snapshot.names.length));
+        for (int tagId = 0; tagId < snapshot.names.length; tagId++) {
+            var ids = snapshot.tagKeys[tagId];
+            var keys = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                var out = new TagCodec.Output();
+                codec.write(snapshot.key(ids[i]), out);
+                // one char per byte, so sorting the strings sorts the encoded keys
+                keys[i] = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+            }
+            Arrays.sort(keys);
+
+            update(digest, snapshot.names[tagId]);
+            update(digest, String.valueOf(keys.length));
+            for (var key : keys) {
+                update(digest, key.length() + "|" + key);
+            }
+        }
+
+        var including = published.includes().keySet().toArray(new String[0]);
+        Arrays.sort(including);
+        for (var tagName : including) {
+            var nested = published.includes().get(tagName).toArray(new String[0]);
+            Arrays.sort(nested);
+            update(digest, tagName + ">" + String.join(",", nested));
+        }
+    }
+
+    /**
+     * Every ore name with the registry name and metadata of its entries. Hashed once, at load completion, so
+     * entries registered later or pushed by {@link OreBridge} do not invalidate the cache written for this start.
+     */
+    private static byte[] oreDictionaryHash() throws IOException {
+        var digest = sha1();
+        var oreNames = OreDictionary.getOreNames().clone();
+        Arrays.sort(oreNames);
+        for (var oreName : oreNames) {
+            update(digest, oreName);
+            for (var stack : OreDictionary.getOres(oreName, false)) {
+                update(digest, stack.getItem().getRegistryName() + "@" + stack.getMetadata());
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha1() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+}
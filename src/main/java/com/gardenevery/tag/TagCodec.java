@@ -0,0 +1,225 @@
+package com.gardenevery.tag;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Compact binary form of tag stores, shared by the snapshot cache and the network sync.
+ * <p>
+ * Strings are interned into one table written ahead of the body. A store section is a key table followed by
+ * each tag's name and its sorted key indices as varint deltas, which mirrors the {@link TagSnapshot} layout.
+ */
+final class TagCodec {
+
+    private TagCodec() {}
+
+    /**
+     * Write the given tags of a snapshot, with a key table holding only the keys they reference
+     */
+    static <T> void writeTags(Output out, TagSnapshot<T> snapshot, int[] tagIds, KeyCodec<T> codec) {
+        var localIds = new Int2IntOpenHashMap();
+        localIds.defaultReturnValue(-1);
+        var referenced = new boolean[snapshot.keys.length];
+        for (int tagId : tagIds) {
+            for (int keyId : snapshot.tagKeys[tagId]) {
+                referenced[keyId] = true;
+            }
+        }
+
+        // ascending global IDs keep every remapped row sorted
+        int keyCount = 0;
+        for (int keyId = 0; keyId < referenced.length; keyId++) {
+            if (referenced[keyId]) {
+                localIds.put(keyId, keyCount++);
+            }
+        }
+
+        out.varInt(keyCount);
+        for (int keyId = 0; keyId < referenced.length; keyId++) {
+            if (referenced[keyId]) {
+                codec.write(snapshot.key(keyId), out);
+            }
+        }
+
+        out.varInt(tagIds.length);
+        for (int tagId : tagIds) {
+            out.string(snapshot.names[tagId]);
+            var ids = snapshot.tagKeys[tagId];
+            out.varInt(ids.length);
+            int previous = 0;
+            for (int keyId : ids) {
+                int localId = localIds.get(keyId);
+                out.varInt(localId - previous);
+                previous = localId;
+            }
+        }
+    }
+
+    static <T> void writeAllTags(Output out, TagSnapshot<T> snapshot, KeyCodec<T> codec) {
+        var tagIds = new int[snapshot.names.length];
+        for (int tagId = 0; tagId < tagIds.length; tagId++) {
+            tagIds[tagId] = tagId;
+        }
+        writeTags(out, snapshot, tagIds, codec);
+    }
+
+    /**
+     * Read a section written by {@link #writeTags}; keys the codec cannot resolve are left null
+     */
+    static Section readTags(Input in, KeyCodec<?> codec) {
+        var keys = new Object[in.varInt()];
+        for (int keyId = 0; keyId < keys.length; keyId++) {
+            keys[keyId] = codec.read(in);
+        }
+
+        var names = new String[in.varInt()];
+        var tagKeys = new int[names.length][];
+        for (int tagId = 0; tagId < names.length; tagId++) {
+            names[tagId] = in.string();
+            var ids = new int[in.varInt()];
+            int keyId = 0;
+            for (int i = 0; i < ids.length; i++) {
+                keyId += in.varInt();
+                ids[i] = keyId;
+            }
+            tagKeys[tagId] = ids;
+        }
+        return new Section(names, keys, tagKeys);
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Desugar
+    record Section(String[] names, Object[] keys, int[][] tagKeys) {}
+
+    interface KeyCodec<T> {
+        void write(T key, Output out);
+
+        /**
+         * @return the key, or null if it does not exist on this side
+         */
+        @Nullable
+        T read(Input in);
+    }
+
+    static final class Output {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Object2IntOpenHashMap<String> stringIds = new Object2IntOpenHashMap<>();
+        private final ObjectArrayList<String> strings = new ObjectArrayList<>();
+
+        Output() {
+            stringIds.defaultReturnValue(-1);
+        }
+
+        void varInt(int value) {
+            writeVarInt(bytes, value);
+        }
+
+        void writeByte(int value) {
+            bytes.write(value);
+        }
+
+        void bytes(byte[] value) {
+            bytes.write(value, 0, value.length);
+        }
+
+        /**
+         * Write a string as its index in the string table
+         */
+        void string(String value) {
+            int id = stringIds.getInt(value);
+            if (id < 0) {
+                id = strings.size();
+                stringIds.put(value, id);
+                strings.add(value);
+            }
+            varInt(id);
+        }
+
+        /**
+         * The string table followed by everything written so far
+         */
+        byte[] toByteArray() {
+            var table = new Output();
+            table.varInt(strings.size());
+            for (var value : strings) {
+                var utf8 = value.getBytes(StandardCharsets.UTF_8);
+                table.varInt(utf8.length);
+                table.bytes(utf8);
+            }
+
+            var result = new byte[table.bytes.size() + bytes.size()];
+            System.arraycopy(table.bytes.toByteArray(), 0, result, 0, table.bytes.size());
+            System.arraycopy(bytes.toByteArray(), 0, result, table.bytes.size(), bytes.size());
+            return result;
+        }
+    }
+
+    static final class Input {
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        /**
+         * Read the string table at the buffer's position, leaving it at the start of the body
+         */
+        Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.strings = new String[varInt()];
+            for (int i = 0; i < strings.length; i++) {
+                var utf8 = new byte[varInt()];
+                buffer.get(utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+        }
+
+        int varInt() {
+            return readVarInt(buffer);
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        String string() {
+            int id = varInt();
+            if (id >= strings.length) {
+                throw new IllegalStateException("String index " + id + " out of range");
+            }
+            return strings[id];
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.gardenevery.tag;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -11,6 +12,9 @@ import javax.annotation.Nonnull;
 
 import com.github.bsideup.jabel.Desugar;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.server.MinecraftServer;
@@ -19,6 +23,10 @@ import net.minecraft.util.text.TextComponentTranslation;
 
 public class TagCommand extends CommandBase {
 
+    private static final Logger LOGGER = LogManager.getLogger("TagCommand");
+    private static final int PROFILE_TOP = 10;
+    private static final int MEMORY_TOP = 10;
+
     public final CommandManager commandManager;
     public static final Level LEVEL0 = Level.ALL;
     public static final Level LEVEL1 = Level.PLAYER;
@@ -49,8 +57,23 @@ public class TagCommand extends CommandBase {
         }
     }
 
+    @FunctionalInterface
+    public interface Executor {
+        /**
+         * @param args the arguments after the sub-command name
+         */
+        void execute(MinecraftServer server, ICommandSender sender, String[] args);
+    }
+
+    /**
+     * A sub-command; {@code arguments} are offered as completions for its first argument
+     */
     @Desugar
-    public record CommandHandler(String name, Level permission, BiConsumer<MinecraftServer, ICommandSender> executor, String descriptionKey) {}
+    public record CommandHandler(String name, Level permission, Executor executor, String descriptionKey, List<String> arguments) {
+        public CommandHandler(String name, Level permission, BiConsumer<MinecraftServer, ICommandSender> executor, String descriptionKey) {
+            this(name, permission, (server, sender, args) -> executor.accept(server, sender), descriptionKey, Collections.emptyList());
+        }
+    }
 
     public class CommandManager {
         private final Map<String, CommandHandler> commands = new HashMap<>();
@@ -79,24 +102,29 @@ public class TagCommand extends CommandBase {
             Optional<CommandHandler> handlerOptional = getHandler(subCommand);
 
             if (handlerOptional.isPresent()) {
-                executeHandler(server, sender, handlerOptional.get());
+                executeHandler(server, sender, handlerOptional.get(), Arrays.copyOfRange(args, 1, args.length));
             } else {
                 showHelp(sender);
             }
         }
 
-        private void executeHandler(MinecraftServer server, ICommandSender sender, CommandHandler handler) {
+        private void executeHandler(MinecraftServer server, ICommandSender sender, CommandHandler handler, String[] args) {
             if (!handler.permission().hasPermission(sender, "tag")) {
                 sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.nopermission"));
                 return;
             }
-            handler.executor().accept(server, sender);
+            handler.executor().execute(server, sender, args);
         }
 
         public List<String> getTabCompletions(String[] args) {
             if (args.length == 1) {
                 return getListOfStringsMatchingLastWord(args, getSubCommandNames());
             }
+            if (args.length == 2) {
+                return getHandler(args[0])
+                        .map(handler -> getListOfStringsMatchingLastWord(args, handler.arguments()))
+                        .orElse(Collections.emptyList());
+            }
             return Collections.emptyList();
         }
     }
@@ -104,6 +132,12 @@ public class TagCommand extends CommandBase {
     private void registerCommands() {
         commandManager.registerCommand(new CommandHandler("info", LEVEL2,
                 (server, sender) -> showTagStatistics(sender), "com.gardenevery.tag.help.info"));
+        commandManager.registerCommand(new CommandHandler("reload", LEVEL2,
+                this::reloadTags, "com.gardenevery.tag.help.reload"));
+        commandManager.registerCommand(new CommandHandler("memory", LEVEL2,
+                (server, sender) -> showMemory(sender), "com.gardenevery.tag.help.memory"));
+        commandManager.registerCommand(new CommandHandler("profile", LEVEL2,
+                this::profileLookups, "com.gardenevery.tag.help.profile", Arrays.asList("start", "stop", "dump")));
     }
 
     @Nonnull
@@ -115,7 +149,7 @@ public class TagCommand extends CommandBase {
     @Nonnull
     @Override
     public String getUsage(@Nonnull ICommandSender sender) {
-        return "tag [info]";
+        return "tag [info|reload|memory|profile]";
     }
 
     @Override
@@ -147,6 +181,8 @@ public class TagCommand extends CommandBase {
         displayStatisticsForType(sender, "com.gardenevery.tag.statistics.fluids", TagType.FLUID);
         displayStatisticsForType(sender, "com.gardenevery.tag.statistics.blocks", TagType.BLOCK);
         displayTotalStatistics(sender);
+        sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.statistics.oredict", OreSync.bulkEntries(),
+                OreSync.incrementalEntries()));
     }
 
     private void displayStatisticsForType(@Nonnull ICommandSender sender, String translationKey, TagType type) {
@@ -167,6 +203,122 @@ public class TagCommand extends CommandBase {
         sender.sendMessage(new TextComponentTranslation(key, stats.tagCount(), stats.elementCount(), stats.uniqueElementCount()));
     }
 
+    private void showMemory(@Nonnull ICommandSender sender) {
+        var report = TagMemory.report(MEMORY_TOP);
+        sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.title"));
+
+        long retained = 0;
+        long hashSets = 0;
+        long compact = 0;
+        for (var store : report.stores()) {
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.store", store.store(), store.tags(),
+                    store.associations(), TagMemory.format(store.total()), TagMemory.format(store.names()), TagMemory.format(store.membership()),
+                    TagMemory.format(store.lookup()), TagMemory.format(store.keyTable())));
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.compare", TagMemory.format(store.hashSets()),
+                    TagMemory.format(store.compact()), ratio(store.total(), store.compact())));
+            retained += store.total();
+            hashSets += store.hashSets();
+            compact += store.compact();
+        }
+
+        var caches = report.caches();
+        sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.references", TagMemory.format(report.references())));
+        sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.indexes", TagMemory.format(report.indexes())));
+        sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.caches", TagMemory.format(caches.total()),
+                TagMemory.format(caches.elementViews()), TagMemory.format(caches.syncPayload()), TagMemory.format(caches.tooltipLines()),
+                TagMemory.format(caches.tileEntityClasses())));
+        sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.total",
+                TagMemory.format(retained + report.references() + report.indexes() + caches.total()), TagMemory.format(hashSets),
+                TagMemory.format(compact)));
+
+        if (!report.largest().isEmpty()) {
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.largest"));
+            for (var tag : report.largest()) {
+                sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.memory.tag", tag.store(), tag.tagName(), tag.entries(),
+                        TagMemory.format(tag.bytes())));
+            }
+        }
+    }
+
+    private static String ratio(long bytes, long compact) {
+        return compact == 0 ? "-" : String.format("%.1f", (double) bytes / compact);
+    }
+
+    private void reloadTags(@Nonnull MinecraftServer server, @Nonnull ICommandSender sender) {
+        var reload = TagReload.reload(server::addScheduledTask);
+        if (reload == null) {
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.reload.busy"));
+            return;
+        }
+
+        sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.reload.started"));
+        reload.whenComplete((result, error) -> server.addScheduledTask(() -> {
+            if (error != null) {
+                LOGGER.error("Tag reload failed", error);
+                sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.reload.failed"));
+            } else {
+                sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.reload.done", result.tagCount(), result.elapsedMillis()));
+            }
+        }));
+    }
+
+    private void profileLookups(@Nonnull MinecraftServer server, @Nonnull ICommandSender sender, @Nonnull String[] args) {
+        if (!TagProfiler.ENABLED) {
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.unavailable"));
+            return;
+        }
+
+        var action = args.length > 0 ? args[0].toLowerCase() : "";
+        switch (action) {
+            case "start" -> {
+                TagProfiler.begin();
+                sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.started"));
+            }
+            case "stop" -> {
+                TagProfiler.end();
+                sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.stopped"));
+            }
+            case "dump" -> showProfile(sender);
+            default -> sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.usage"));
+        }
+    }
+
+    private void showProfile(@Nonnull ICommandSender sender) {
+        if (!TagProfiler.hasRun()) {
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.empty"));
+            return;
+        }
+
+        var report = TagProfiler.report(PROFILE_TOP);
+        sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.title",
+                String.format("%.1f", report.elapsedMillis() / 1000.0)));
+        if (report.rows().isEmpty()) {
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.empty"));
+            return;
+        }
+
+        for (var row : report.rows()) {
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.row",
+                    row.type().name().toLowerCase(), row.query().name().toLowerCase(), row.calls(),
+                    String.format("%.1f", row.callsPerSecond()), String.format("%.1f", row.hits() * 100.0 / row.calls()),
+                    row.meanNanos(), row.p50Nanos(), row.p99Nanos()));
+        }
+
+        sendCounts(sender, "com.gardenevery.tag.profile.tags", report.tags());
+        sendCounts(sender, "com.gardenevery.tag.profile.callers", report.callers());
+    }
+
+    private void sendCounts(@Nonnull ICommandSender sender, String titleKey, List<TagProfiler.Count> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        sender.sendMessage(new TextComponentTranslation(titleKey));
+        for (var count : counts) {
+            sender.sendMessage(new TextComponentTranslation("com.gardenevery.tag.profile.count", count.name(), count.count()));
+        }
+    }
+
     @Override
     public boolean checkPermission(@Nonnull MinecraftServer server, @Nonnull ICommandSender sender) {
         return true;
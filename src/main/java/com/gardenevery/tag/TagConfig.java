@@ -0,0 +1,23 @@
+package com.gardenevery.tag;
+
+import net.minecraftforge.common.config.Config;
+
+@Config(modid = Tags.MOD_ID)
+public final class TagConfig {
+
+    private TagConfig() {}
+
+    @Config.Comment({
+            "Save the loaded tags to config/tag/snapshot.bin and reuse them on the next start",
+            "while the mod list, the tags registered from code, the tag files and the Ore Dictionary are unchanged"
+    })
+    @Config.RequiresMcRestart
+    public static boolean snapshotCache = true;
+
+    @Config.Comment({
+            "Register item tag entries the Ore Dictionary does not have yet, for mods that only read the Ore Dictionary.",
+            "Applies to tags without a namespace and to tags named like an existing ore name"
+    })
+    @Config.RequiresMcRestart
+    public static boolean oreDictionaryBridge = false;
+}
@@ -0,0 +1,90 @@
+package com.gardenevery.tag;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Change notification for tag-derived caches.
+ * <p> Cache by generation:
+ * <p> if (cachedGeneration != TagEvents.generation(TagType.ITEM)) { rebuild(); cachedGeneration = TagEvents.generation(TagType.ITEM); }
+ * <p> Or invalidate precisely:
+ * <p> TagEvents.addListener((type, changedTags) -> recipeCache.invalidate(changedTags));
+ * <p>
+ * Listeners run once per published snapshot, after a whole batch, reload or network update has been applied,
+ * never per association. They are called on the thread that changed the tags while that store is locked, so
+ * they should only invalidate caches and must not change tags. Nothing is reported before the stores freeze.
+ */
+public final class TagEvents {
+
+    private TagEvents() {}
+
+    private static final Logger LOGGER = LogManager.getLogger("TagEvents");
+    private static final CopyOnWriteArrayList<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param changedTags names of the tags added, removed or whose members changed
+         */
+        void onChanged(@Nonnull TagType type, @Nonnull Set<String> changedTags);
+    }
+
+    public static void addListener(@Nonnull Listener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void removeListener(@Nonnull Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Get a number that increases whenever any tag store publishes new tags
+     */
+    public static long generation() {
+        return GENERATION.get();
+    }
+
+    /**
+     * Get a number that increases whenever tags of the given type may have changed
+     */
+    public static long generation(@Nonnull TagType type) {
+        return switch (type) {
+            case ITEM -> TagManager.ITEM.generation();
+            case FLUID -> TagManager.FLUID.generation();
+            case BLOCK -> TagManager.BLOCK.generation() + TagManager.BLOCK_STATE.generation() + TagManager.TILE_ENTITY.generation();
+        };
+    }
+
+    /**
+     * @param changedTags the tags that changed if the caller knows them, otherwise null to compare the snapshots
+     */
+    static <T> void published(TagType type, @Nullable TagSnapshot<T> previous, TagSnapshot<T> snapshot,
+                              @Nullable Set<String> changedTags) {
+        GENERATION.incrementAndGet();
+        if (LISTENERS.isEmpty()) {
+            return;
+        }
+
+        if (changedTags == null) {
+            changedTags = TagSnapshot.changedTags(previous, snapshot);
+        }
+        if (changedTags.isEmpty()) {
+            return;
+        }
+
+        for (var listener : LISTENERS) {
+            try {
+                listener.onChanged(type, changedTags);
+            } catch (RuntimeException e) {
+                LOGGER.error("Tag change listener {} failed", listener, e);
+            }
+        }
+    }
+}
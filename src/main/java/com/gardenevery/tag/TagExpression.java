@@ -0,0 +1,430 @@
+package com.gardenevery.tag;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * A boolean expression over tag names, parsed once and evaluated against interned tag IDs.
+ * <p> Obtain one with {@link TagHelper#compile(TagType, String)} and keep it:
+ * <p> private static final TagExpression FILTER = TagHelper.compile(TagType.ITEM, "forge:ingots & !mod:radioactive | forge:gems");
+ * <p> FILTER.matches(stack);
+ * <p>
+ * Syntax: tag names, {@code !} (not), {@code &} (and), {@code |} (or) and parentheses, with the usual
+ * precedence {@code !} over {@code &} over {@code |}. When bound to a frozen store, unknown tags fold to
+ * false, constant branches are removed, and the operands of each {@code &} / {@code |} are reordered so the
+ * one most likely to decide the result is tested first.
+ */
+public final class TagExpression {
+
+    private final TagType type;
+    private final String source;
+    private final Node root;
+    private Binding binding;
+
+    private TagExpression(TagType type, String source, Node root) {
+        this.type = type;
+        this.source = source;
+        this.root = root;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression is empty or malformed
+     */
+    static TagExpression compile(@Nonnull TagType type, @Nullable String source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Tag expression cannot be null");
+        }
+        return new TagExpression(type, source, new Parser(source).parse());
+    }
+
+    @Nonnull
+    public TagType type() {
+        return type;
+    }
+
+    @Nonnull
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Check if an item matches this expression
+     */
+    public boolean matches(@Nullable ItemStack stack) {
+        if (stack == null || stack.isEmpty()) {
+            return false;
+        }
+        return matches(stack.getItem(), stack.getMetadata());
+    }
+
+    /**
+     * Check if an item and metadata matches this expression
+     */
+    public boolean matches(@Nullable Item item, int metadata) {
+        if (type != TagType.ITEM || item == null) {
+            return false;
+        }
+
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            return root.matches(TagHelper.tags(item, metadata));
+        }
+        var index = ItemIndex.of(snapshot);
+        return bind(snapshot, index).test(index, index.keyId(item, metadata));
+    }
+
+    /**
+     * Check if a fluid matches this expression
+     */
+    public boolean matches(@Nullable FluidStack stack) {
+        if (type != TagType.FLUID || stack == null || stack.getFluid() == null) {
+            return false;
+        }
+
+        var snapshot = TagManager.FLUID.snapshot();
+        if (snapshot == null) {
+            return root.matches(TagHelper.tags(stack));
+        }
+        return bind(snapshot, snapshot).test(snapshot, snapshot.keyId(stack.getFluid()));
+    }
+
+    /**
+     * Check if a block matches this expression
+     */
+    public boolean matches(@Nullable Block block) {
+        if (type != TagType.BLOCK || block == null) {
+            return false;
+        }
+
+        var snapshot = TagManager.BLOCK.snapshot();
+        if (snapshot == null) {
+            return root.matches(TagHelper.tags(block));
+        }
+        return bind(snapshot, snapshot).test(snapshot, snapshot.keyId(block));
+    }
+
+    /**
+     * Check if a block state matches this expression
+     */
+    public boolean matches(@Nullable IBlockState blockState) {
+        if (type != TagType.BLOCK || blockState == null) {
+            return false;
+        }
+
+        var index = BlockStateIndex.current();
+        if (index == null) {
+            return root.matches(TagHelper.tags(blockState));
+        }
+        return bind(index.stateTags, index).test(index, Block.getStateId(blockState));
+    }
+
+    public Predicate<ItemStack> forItems() {
+        return this::matches;
+    }
+
+    public Predicate<FluidStack> forFluids() {
+        return this::matches;
+    }
+
+    public Predicate<Block> forBlocks() {
+        return this::matches;
+    }
+
+    public Predicate<IBlockState> forBlockStates() {
+        return this::matches;
+    }
+
+    private Node bind(TagSnapshot<?> names, Object source) {
+        var current = binding;
+        if (current == null || current.source() != source) {
+            current = new Binding(source, root.bind(names));
+            binding = current;
+        }
+        return current.root();
+    }
+
+    @Override
+    public String toString() {
+        return type + ":" + source;
+    }
+
+    @Desugar
+    private record Binding(Object source, Node root) {}
+
+    private abstract static class Node {
+        /**
+         * Estimated number of keys matched, used to order operands
+         */
+        int estimate;
+
+        abstract boolean matches(Set<String> tags);
+
+        abstract boolean test(TagMembership membership, int keyId);
+
+        abstract Node bind(TagSnapshot<?> snapshot);
+    }
+
+    private static final class Constant extends Node {
+        static final Constant TRUE = new Constant(true);
+        static final Constant FALSE = new Constant(false);
+
+        private final boolean value;
+
+        private Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean matches(Set<String> tags) {
+            return value;
+        }
+
+        @Override
+        boolean test(TagMembership membership, int keyId) {
+            return value;
+        }
+
+        @Override
+        Node bind(TagSnapshot<?> snapshot) {
+            return this;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        private final String tagName;
+        private final int tagId;
+
+        Leaf(String tagName, int tagId) {
+            this.tagName = tagName;
+            this.tagId = tagId;
+        }
+
+        @Override
+        boolean matches(Set<String> tags) {
+            return tags.contains(tagName);
+        }
+
+        @Override
+        boolean test(TagMembership membership, int keyId) {
+            return membership.hasTag(keyId, tagId);
+        }
+
+        @Override
+        Node bind(TagSnapshot<?> snapshot) {
+            int id = snapshot.tagId(tagName);
+            if (id < 0) {
+                return Constant.FALSE;
+            }
+
+            var bound = new Leaf(tagName, id);
+            bound.estimate = snapshot.keyIds(id).length;
+            return bound;
+        }
+    }
+
+    private static final class Not extends Node {
+        private final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean matches(Set<String> tags) {
+            return !operand.matches(tags);
+        }
+
+        @Override
+        boolean test(TagMembership membership, int keyId) {
+            return !operand.test(membership, keyId);
+        }
+
+        @Override
+        Node bind(TagSnapshot<?> snapshot) {
+            var bound = operand.bind(snapshot);
+            if (bound instanceof Constant) {
+                return bound == Constant.TRUE ? Constant.FALSE : Constant.TRUE;
+            }
+            if (bound instanceof Not) {
+                return ((Not) bound).operand;
+            }
+
+            var not = new Not(bound);
+            not.estimate = Math.max(0, snapshot.getKeyCount() - bound.estimate);
+            return not;
+        }
+    }
+
+    /**
+     * {@code &} when {@code all} is set, otherwise {@code |}
+     */
+    private static final class Junction extends Node {
+        private final boolean all;
+        private final Node[] operands;
+
+        Junction(boolean all, Node[] operands) {
+            this.all = all;
+            this.operands = operands;
+        }
+
+        @Override
+        boolean matches(Set<String> tags) {
+            for (var operand : operands) {
+                if (operand.matches(tags) != all) {
+                    return !all;
+                }
+            }
+            return all;
+        }
+
+        @Override
+        boolean test(TagMembership membership, int keyId) {
+            for (var operand : operands) {
+                if (operand.test(membership, keyId) != all) {
+                    return !all;
+                }
+            }
+            return all;
+        }
+
+        @Override
+        Node bind(TagSnapshot<?> snapshot) {
+            var identity = all ? Constant.TRUE : Constant.FALSE;
+            var absorbing = all ? Constant.FALSE : Constant.TRUE;
+            var bound = new ObjectArrayList<Node>(operands.length);
+
+            for (var operand : operands) {
+                var node = operand.bind(snapshot);
+                if (node == absorbing) {
+                    return absorbing;
+                }
+                if (node != identity) {
+                    bound.add(node);
+                }
+            }
+
+            if (bound.isEmpty()) {
+                return identity;
+            }
+            if (bound.size() == 1) {
+                return bound.get(0);
+            }
+
+            // '&' fails fastest on its rarest operand, '|' succeeds fastest on its most common one
+            Comparator<Node> bySize = Comparator.comparingInt(node -> node.estimate);
+            bound.sort(all ? bySize : bySize.reversed());
+
+            var junction = new Junction(all, bound.toArray(new Node[0]));
+            junction.estimate = all ? bound.get(0).estimate : Math.min(snapshot.getKeyCount(), sum(bound));
+            return junction;
+        }
+
+        private static int sum(List<Node> nodes) {
+            long total = 0;
+            for (var node : nodes) {
+                total += node.estimate;
+            }
+            return (int) Math.min(Integer.MAX_VALUE, total);
+        }
+    }
+
+    /**
+     * Recursive descent over: or = and ('|' and)*; and = unary ('&' unary)*; unary = '!' unary | '(' or ')' | name
+     */
+    private static final class Parser {
+        private final String source;
+        private int pos;
+
+        Parser(String source) {
+            this.source = source;
+        }
+
+        Node parse() {
+            var node = parseOr();
+            skipWhitespace();
+            if (pos < source.length()) {
+                throw error("Unexpected '" + source.charAt(pos) + "'");
+            }
+            return node;
+        }
+
+        private Node parseOr() {
+            var operands = new ObjectArrayList<Node>();
+            operands.add(parseAnd());
+            while (accept('|')) {
+                operands.add(parseAnd());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Junction(false, operands.toArray(new Node[0]));
+        }
+
+        private Node parseAnd() {
+            var operands = new ObjectArrayList<Node>();
+            operands.add(parseUnary());
+            while (accept('&')) {
+                operands.add(parseUnary());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Junction(true, operands.toArray(new Node[0]));
+        }
+
+        private Node parseUnary() {
+            if (accept('!')) {
+                return new Not(parseUnary());
+            }
+
+            if (accept('(')) {
+                var node = parseOr();
+                if (!accept(')')) {
+                    throw error("Expected ')'");
+                }
+                return node;
+            }
+
+            skipWhitespace();
+            int start = pos;
+            while (pos < source.length() && isNameChar(source.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error(pos < source.length() ? "Unexpected '" + source.charAt(pos) + "'" : "Expected a tag name");
+            }
+            return new Leaf(source.substring(start, pos), -1);
+        }
+
+        private boolean accept(char c) {
+            skipWhitespace();
+            if (pos < source.length() && source.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private static boolean isNameChar(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == ':' || c == '_' || c == '/';
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in tag expression \"" + source + "\"");
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.gardenevery.tag;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraftforge.fluids.Fluid;
@@ -26,11 +30,20 @@ public final class TagHelper {
             return Collections.emptySet();
         }
 
-        var key = ItemKey.toKey(stack);
-        if (key == null) {
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.TAGS, null,
+                ItemIndex.getTag(stack.getItem(), stack.getMetadata()), start);
+    }
+
+    /**
+     * Get all tags associated with an item and metadata
+     */
+    public static Set<String> tags(@Nullable Item item, int metadata) {
+        if (item == null) {
             return Collections.emptySet();
         }
-        return TagManager.ITEM.getTag(key);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.TAGS, null, ItemIndex.getTag(item, metadata), start);
     }
 
     /**
@@ -40,7 +53,8 @@ public final class TagHelper {
         if (stack == null || stack.getFluid() == null) {
             return Collections.emptySet();
         }
-        return TagManager.FLUID.getTag(stack.getFluid());
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.FLUID, TagProfiler.Query.TAGS, null, TagManager.FLUID.getTag(stack.getFluid()), start);
     }
 
     /**
@@ -50,7 +64,8 @@ public final class TagHelper {
         if (block == null) {
             return Collections.emptySet();
         }
-        return TagManager.BLOCK.getTag(block);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.TAGS, null, TagManager.BLOCK.getTag(block), start);
     }
 
     /**
@@ -60,7 +75,8 @@ public final class TagHelper {
         if (blockState == null) {
             return Collections.emptySet();
         }
-        return TagManager.BLOCK.getTag(blockState.getBlock());
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.TAGS, null, BlockStateIndex.getTag(blockState), start);
     }
 
     /**
@@ -71,26 +87,93 @@ public final class TagHelper {
             return Collections.emptySet();
         }
 
-        var world = blockEntity.getWorld();
-        var pos = blockEntity.getPos();
-        var blockState = world.getBlockState(pos);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.TAGS, null, TileEntityIndex.getTag(blockEntity), start);
+    }
+
+    /**
+     * Get the tags of an item in alphabetical order
+     * <p> Sorted once per snapshot, do not sort or copy the result for display
+     */
+    public static List<String> sortedTags(@Nullable ItemStack stack) {
+        if (stack == null || stack.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.SORTED_TAGS, null,
+                ItemIndex.sortedTags(stack.getItem(), stack.getMetadata()), start);
+    }
+
+    /**
+     * Get the tags of an item and metadata in alphabetical order
+     */
+    public static List<String> sortedTags(@Nullable Item item, int metadata) {
+        if (item == null) {
+            return Collections.emptyList();
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.SORTED_TAGS, null, ItemIndex.sortedTags(item, metadata), start);
+    }
+
+    /**
+     * Get the tags of a fluid in alphabetical order
+     */
+    public static List<String> sortedTags(@Nullable FluidStack stack) {
+        if (stack == null || stack.getFluid() == null) {
+            return Collections.emptyList();
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.FLUID, TagProfiler.Query.SORTED_TAGS, null,
+                TagManager.FLUID.getSortedTag(stack.getFluid()), start);
+    }
+
+    /**
+     * Get the tags of a block in alphabetical order
+     */
+    public static List<String> sortedTags(@Nullable Block block) {
+        if (block == null) {
+            return Collections.emptyList();
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.SORTED_TAGS, null, TagManager.BLOCK.getSortedTag(block), start);
+    }
 
-        return TagManager.BLOCK.getTag(blockState.getBlock());
+    /**
+     * Get the tags of a block state in alphabetical order
+     */
+    public static List<String> sortedTags(@Nullable IBlockState blockState) {
+        if (blockState == null) {
+            return Collections.emptyList();
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.SORTED_TAGS, null, BlockStateIndex.sortedTags(blockState), start);
     }
 
     /**
-     * Get all tags associated with a tag type
+     * Get the tags of a tileentity in alphabetical order
+     */
+    public static List<String> sortedTags(@Nullable TileEntity blockEntity) {
+        if (blockEntity == null) {
+            return Collections.emptyList();
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.SORTED_TAGS, null, TileEntityIndex.sortedTags(blockEntity), start);
+    }
+
+    /**
+     * Get all tags associated with a tag type, in alphabetical order once loading has completed
      */
     public static Set<String> allTags(@Nonnull TagType type) {
         return switch (type) {
             case ITEM -> TagManager.ITEM.getAllTag();
             case FLUID -> TagManager.FLUID.getAllTag();
-            case BLOCK -> TagManager.BLOCK.getAllTag();
+            case BLOCK -> BlockStateIndex.allTags();
         };
     }
 
     /**
      * Get all elements (keys) associated with a tag name and type
+     * <p> Item and fluid stacks are new for every iteration and may be modified
      */
     @SuppressWarnings("unchecked")
     public static <T> Set<T> element(@Nullable String tagName, @Nonnull TagType type) {
@@ -98,69 +181,101 @@ public final class TagHelper {
             return Collections.emptySet();
         }
 
-        return (Set<T>) switch (type) {
-            case ITEM -> {
-                Set<ItemKey> keys = TagManager.ITEM.getKey(tagName);
-                Set<ItemStack> result = new ObjectOpenHashSet<>();
-                for (var key : keys) {
-                    result.add(key.toElement());
-                }
-                yield Collections.unmodifiableSet(result);
-            }
-            case FLUID -> {
-                Set<Fluid> fluids = TagManager.FLUID.getKey(tagName);
-                Set<FluidStack> result = new ObjectOpenHashSet<>();
-                for (var fluid : fluids) {
-                    result.add(new FluidStack(fluid, 1000));
-                }
-                yield Collections.unmodifiableSet(result);
-            }
+        long start = TagProfiler.start();
+        var elements = (Set<T>) switch (type) {
+            case ITEM -> ElementCache.ITEM.get(tagName);
+            case FLUID -> ElementCache.FLUID.get(tagName);
             case BLOCK -> TagManager.BLOCK.getKey(tagName);
         };
+        return TagProfiler.record(type, TagProfiler.Query.ELEMENTS, tagName, elements, start);
     }
 
     /**
      * Get all item elements associated with a tag name
+     * <p> The stacks are new for every iteration and may be modified
      */
     public static Set<ItemStack> itemElement(@Nullable String tagName) {
         if (tagInvalid(tagName)) {
             return Collections.emptySet();
         }
-
-        Set<ItemKey> keys = TagManager.ITEM.getKey(tagName);
-        Set<ItemStack> result = new ObjectOpenHashSet<>();
-
-        for (var key : keys) {
-            result.add(key.toElement());
-        }
-        return Collections.unmodifiableSet(result);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.ELEMENTS, tagName, ElementCache.ITEM.get(tagName), start);
     }
 
     /**
      * Get all fluid elements associated with a tag name
+     * <p> The stacks are new for every iteration and may be modified
      */
     public static Set<FluidStack> fluidElement(@Nullable String tagName) {
         if (tagInvalid(tagName)) {
             return Collections.emptySet();
         }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.FLUID, TagProfiler.Query.ELEMENTS, tagName, ElementCache.FLUID.get(tagName), start);
+    }
 
-        Set<Fluid> fluids = TagManager.FLUID.getKey(tagName);
-        Set<FluidStack> result = new ObjectOpenHashSet<>();
+    /**
+     * Get all block elements associated with a tag name
+     */
+    public static Set<Block> blockElement(@Nullable String tagName) {
+        if (tagInvalid(tagName)) {
+            return Collections.emptySet();
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.ELEMENTS, tagName, TagManager.BLOCK.getKey(tagName), start);
+    }
 
-        for (var fluid : fluids) {
-            result.add(new FluidStack(fluid, 1000));
+    /**
+     * Get the block states added to a tag one by one
+     * <p> Blocks added as a whole are returned by {@link #blockElement(String)}
+     */
+    public static Set<IBlockState> blockStateElement(@Nullable String tagName) {
+        if (tagInvalid(tagName)) {
+            return Collections.emptySet();
         }
-        return Collections.unmodifiableSet(result);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.ELEMENTS, tagName, TagManager.BLOCK_STATE.getKey(tagName), start);
     }
 
     /**
-     * Get all block elements associated with a tag name
+     * Get the tile entity classes added to a tag
      */
-    public static Set<Block> blockElement(@Nullable String tagName) {
+    public static Set<Class<? extends TileEntity>> tileEntityElement(@Nullable String tagName) {
         if (tagInvalid(tagName)) {
             return Collections.emptySet();
         }
-        return TagManager.BLOCK.getKey(tagName);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.ELEMENTS, tagName, TagManager.TILE_ENTITY.getKey(tagName), start);
+    }
+
+    /**
+     * Visit every item and metadata in a tag without creating stacks
+     */
+    public static void forEachItem(@Nullable String tagName, @Nonnull ObjIntConsumer<Item> action) {
+        if (tagInvalid(tagName)) {
+            return;
+        }
+        TagManager.ITEM.forEachKey(tagName, key -> action.accept(key.item(), key.metadata()));
+    }
+
+    /**
+     * Visit every fluid in a tag without creating stacks
+     */
+    public static void forEachFluid(@Nullable String tagName, @Nonnull Consumer<Fluid> action) {
+        if (tagInvalid(tagName)) {
+            return;
+        }
+        TagManager.FLUID.forEachKey(tagName, action);
+    }
+
+    /**
+     * Visit every block in a tag
+     */
+    public static void forEachBlock(@Nullable String tagName, @Nonnull Consumer<Block> action) {
+        if (tagInvalid(tagName)) {
+            return;
+        }
+        TagManager.BLOCK.forEachKey(tagName, action);
     }
 
     /**
@@ -171,11 +286,20 @@ public final class TagHelper {
             return false;
         }
 
-        var key = ItemKey.toKey(stack);
-        if (key == null) {
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.HAS_TAG, tagName,
+                ItemIndex.hasTag(stack.getItem(), stack.getMetadata(), tagName), start);
+    }
+
+    /**
+     * Check if an item and metadata has the specified tag
+     */
+    public static boolean hasTag(@Nullable Item item, int metadata, @Nullable String tagName) {
+        if (tagInvalid(tagName) || item == null) {
             return false;
         }
-        return TagManager.ITEM.hasTag(key, tagName);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.HAS_TAG, tagName, ItemIndex.hasTag(item, metadata, tagName), start);
     }
 
     /**
@@ -185,7 +309,9 @@ public final class TagHelper {
         if (tagInvalid(tagName) || stack == null || stack.getFluid() == null) {
             return false;
         }
-        return TagManager.FLUID.hasTag(stack.getFluid(), tagName);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.FLUID, TagProfiler.Query.HAS_TAG, tagName,
+                TagManager.FLUID.hasTag(stack.getFluid(), tagName), start);
     }
 
     /**
@@ -195,7 +321,8 @@ public final class TagHelper {
         if (tagInvalid(tagName) || block == null) {
             return false;
         }
-        return TagManager.BLOCK.hasTag(block, tagName);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_TAG, tagName, TagManager.BLOCK.hasTag(block, tagName), start);
     }
 
     /**
@@ -205,7 +332,8 @@ public final class TagHelper {
         if (tagInvalid(tagName) || blockState == null) {
             return false;
         }
-        return TagManager.BLOCK.hasTag(blockState.getBlock(), tagName);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_TAG, tagName, BlockStateIndex.hasTag(blockState, tagName), start);
     }
 
     /**
@@ -216,11 +344,8 @@ public final class TagHelper {
             return false;
         }
 
-        var world = blockEntity.getWorld();
-        var pos = blockEntity.getPos();
-        var blockState = world.getBlockState(pos);
-
-        return TagManager.BLOCK.hasTag(blockState.getBlock(), tagName);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_TAG, tagName, TileEntityIndex.hasTag(blockEntity, tagName), start);
     }
 
     /**
@@ -231,11 +356,20 @@ public final class TagHelper {
             return false;
         }
 
-        var key = ItemKey.toKey(stack);
-        if (key == null) {
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.HAS_ANY_TAGS, null,
+                ItemIndex.hasAnyTag(stack.getItem(), stack.getMetadata(), tagNames), start);
+    }
+
+    /**
+     * Check if an item and metadata has any of the specified tags
+     */
+    public static boolean hasAnyTags(@Nullable Item item, int metadata, @Nullable Set<String> tagNames) {
+        if (tagInvalid(tagNames) || item == null) {
             return false;
         }
-        return TagManager.ITEM.hasAnyTag(key, tagNames);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.HAS_ANY_TAGS, null, ItemIndex.hasAnyTag(item, metadata, tagNames), start);
     }
 
     /**
@@ -245,7 +379,9 @@ public final class TagHelper {
         if (tagInvalid(tagNames) || stack == null ||stack.getFluid() == null) {
             return false;
         }
-        return TagManager.FLUID.hasAnyTag(stack.getFluid(), tagNames);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.FLUID, TagProfiler.Query.HAS_ANY_TAGS, null,
+                TagManager.FLUID.hasAnyTag(stack.getFluid(), tagNames), start);
     }
 
     /**
@@ -255,7 +391,8 @@ public final class TagHelper {
         if (tagInvalid(tagNames) || block == null) {
             return false;
         }
-        return TagManager.BLOCK.hasAnyTag(block, tagNames);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_ANY_TAGS, null, TagManager.BLOCK.hasAnyTag(block, tagNames), start);
     }
 
     /**
@@ -265,7 +402,9 @@ public final class TagHelper {
         if (tagInvalid(tagNames) || blockState == null) {
             return false;
         }
-        return TagManager.BLOCK.hasAnyTag(blockState.getBlock(), tagNames);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_ANY_TAGS, null,
+                BlockStateIndex.hasAnyTag(blockState, tagNames), start);
     }
 
     /**
@@ -276,11 +415,153 @@ public final class TagHelper {
             return false;
         }
 
-        var world = blockEntity.getWorld();
-        var pos = blockEntity.getPos();
-        var blockState = world.getBlockState(pos);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_ANY_TAGS, null,
+                TileEntityIndex.hasAnyTag(blockEntity, tagNames), start);
+    }
+
+    /**
+     * Check if an item has all of the specified tags
+     */
+    public static boolean hasAllTags(@Nullable ItemStack stack, @Nullable Set<String> tagNames) {
+        if (tagInvalid(tagNames) || stack == null || stack.isEmpty()) {
+            return false;
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.HAS_ALL_TAGS, null,
+                ItemIndex.hasAllTags(stack.getItem(), stack.getMetadata(), tagNames), start);
+    }
+
+    /**
+     * Check if an item and metadata has all of the specified tags
+     */
+    public static boolean hasAllTags(@Nullable Item item, int metadata, @Nullable Set<String> tagNames) {
+        if (tagInvalid(tagNames) || item == null) {
+            return false;
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.HAS_ALL_TAGS, null,
+                ItemIndex.hasAllTags(item, metadata, tagNames), start);
+    }
+
+    /**
+     * Check if a fluid has all of the specified tags
+     */
+    public static boolean hasAllTags(@Nullable FluidStack stack, @Nullable Set<String> tagNames) {
+        if (tagInvalid(tagNames) || stack == null || stack.getFluid() == null) {
+            return false;
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.FLUID, TagProfiler.Query.HAS_ALL_TAGS, null,
+                TagManager.FLUID.hasAllTags(stack.getFluid(), tagNames), start);
+    }
+
+    /**
+     * Check if a block has all of the specified tags
+     */
+    public static boolean hasAllTags(@Nullable Block block, @Nullable Set<String> tagNames) {
+        if (tagInvalid(tagNames) || block == null) {
+            return false;
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_ALL_TAGS, null, TagManager.BLOCK.hasAllTags(block, tagNames), start);
+    }
 
-        return TagManager.BLOCK.hasAnyTag(blockState.getBlock(), tagNames);
+    /**
+     * Check if a block state has all of the specified tags
+     */
+    public static boolean hasAllTags(@Nullable IBlockState blockState, @Nullable Set<String> tagNames) {
+        if (tagInvalid(tagNames) || blockState == null) {
+            return false;
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_ALL_TAGS, null,
+                BlockStateIndex.hasAllTags(blockState, tagNames), start);
+    }
+
+    /**
+     * Check if a tileentity has all of the specified tags
+     */
+    public static boolean hasAllTags(@Nullable TileEntity blockEntity, @Nullable Set<String> tagNames) {
+        if (tagInvalid(tagNames) || blockEntity == null) {
+            return false;
+        }
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.HAS_ALL_TAGS, null,
+                TileEntityIndex.hasAllTags(blockEntity, tagNames), start);
+    }
+
+    /**
+     * Get the elements present in every one of the tags
+     * <p> Block results cover every block store: a {@link Block} when all its states match, an {@link IBlockState}
+     * when only some do, and tile entity classes; iterate them as {@code Set<Object>}
+     * <p> Item results treat a wildcard entry as every metadata of its item, and hold the wildcard stack only when
+     * every metadata matches
+     * <p> Example: Set&lt;ItemStack&gt; stacks = TagHelper.intersect(TagType.ITEM, "forge:ingots", "mod:metal");
+     */
+    public static <T> Set<T> intersect(@Nonnull TagType type, @Nullable String... tagNames) {
+        if (tagNames == null || tagNames.length == 0) {
+            return Collections.emptySet();
+        }
+
+        return elements(type, switch (type) {
+            case ITEM -> TagQuery.itemIntersect(tagNames);
+            case FLUID -> TagQuery.intersect(TagManager.FLUID, tagNames);
+            case BLOCK -> TagQuery.blockIntersect(tagNames);
+        });
+    }
+
+    /**
+     * Get the elements present in at least one of the tags
+     * <p> Block results hold blocks, block states and tile entity classes as for {@link #intersect(TagType, String...)}
+     */
+    public static <T> Set<T> union(@Nonnull TagType type, @Nullable String... tagNames) {
+        if (tagNames == null || tagNames.length == 0) {
+            return Collections.emptySet();
+        }
+
+        return elements(type, switch (type) {
+            case ITEM -> TagQuery.itemUnion(tagNames);
+            case FLUID -> TagQuery.union(TagManager.FLUID, tagNames);
+            case BLOCK -> TagQuery.blockUnion(tagNames);
+        });
+    }
+
+    /**
+     * Get the elements of a tag that are in none of the excluded tags
+     * <p> Block results hold blocks, block states and tile entity classes as for {@link #intersect(TagType, String...)}
+     * <p> Example: Set&lt;ItemStack&gt; stacks = TagHelper.difference(TagType.ITEM, "forge:ingots", "mod:radioactive");
+     */
+    public static <T> Set<T> difference(@Nonnull TagType type, @Nullable String tagName, @Nullable String... excluded) {
+        if (tagInvalid(tagName)) {
+            return Collections.emptySet();
+        }
+
+        var others = excluded == null ? new String[0] : excluded;
+        return elements(type, switch (type) {
+            case ITEM -> TagQuery.itemDifference(tagName, others);
+            case FLUID -> TagQuery.difference(TagManager.FLUID, tagName, others);
+            case BLOCK -> TagQuery.blockDifference(tagName, others);
+        });
+    }
+
+    /**
+     * Resolve a tag name once for repeated checks
+     * <p> Example: private static final TagRef INGOTS = TagHelper.ref(TagType.ITEM, "forge:ingots");
+     */
+    public static TagRef ref(@Nonnull TagType type, @Nullable String tagName) {
+        return new TagRef(type, tagName);
+    }
+
+    /**
+     * Compile a tag expression once for repeated checks
+     * <p> Example: private static final TagExpression FILTER = TagHelper.compile(TagType.ITEM, "forge:ingots & !mod:radioactive | forge:gems");
+     *
+     * @param expression Tag names combined with ! (not), &amp; (and), | (or) and parentheses
+     * @throws IllegalArgumentException if the expression is empty or malformed
+     */
+    public static TagExpression compile(@Nonnull TagType type, @Nullable String expression) {
+        return TagExpression.compile(type, expression);
     }
 
     /**
@@ -294,7 +575,8 @@ public final class TagHelper {
         return switch (type) {
             case ITEM -> TagManager.ITEM.doesTagExist(tagName);
             case FLUID -> TagManager.FLUID.doesTagExist(tagName);
-            case BLOCK -> TagManager.BLOCK.doesTagExist(tagName);
+            case BLOCK -> TagManager.BLOCK.doesTagExist(tagName) || TagManager.BLOCK_STATE.doesTagExist(tagName)
+                    || TagManager.TILE_ENTITY.doesTagExist(tagName);
         };
     }
 
@@ -305,7 +587,8 @@ public final class TagHelper {
         if (tagInvalid(tagName)) {
             return false;
         }
-        return TagManager.ITEM.doesTagExist(tagName) || TagManager.FLUID.doesTagExist(tagName) || TagManager.BLOCK.doesTagExist(tagName);
+        return TagManager.ITEM.doesTagExist(tagName) || TagManager.FLUID.doesTagExist(tagName) || TagManager.BLOCK.doesTagExist(tagName)
+                || TagManager.BLOCK_STATE.doesTagExist(tagName) || TagManager.TILE_ENTITY.doesTagExist(tagName);
     }
 
     /**
@@ -316,11 +599,20 @@ public final class TagHelper {
             return false;
         }
 
-        var key = ItemKey.toKey(stack);
-        if (key == null) {
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.CONTAINS, null,
+                ItemIndex.containsKey(stack.getItem(), stack.getMetadata()), start);
+    }
+
+    /**
+     * Check if an item and metadata exists in the tag system (has at least one tag)
+     */
+    public static boolean contains(@Nullable Item item, int metadata) {
+        if (item == null) {
             return false;
         }
-        return TagManager.ITEM.containsKey(key);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.ITEM, TagProfiler.Query.CONTAINS, null, ItemIndex.containsKey(item, metadata), start);
     }
 
     /**
@@ -330,7 +622,9 @@ public final class TagHelper {
         if (stack == null || stack.getFluid() == null) {
             return false;
         } else {
-            return TagManager.FLUID.containsKey(stack.getFluid());
+            long start = TagProfiler.start();
+            return TagProfiler.record(TagType.FLUID, TagProfiler.Query.CONTAINS, null,
+                    TagManager.FLUID.containsKey(stack.getFluid()), start);
         }
     }
 
@@ -341,7 +635,8 @@ public final class TagHelper {
         if (block == null) {
             return false;
         }
-        return TagManager.BLOCK.containsKey(block);
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.CONTAINS, null, TagManager.BLOCK.containsKey(block), start);
     }
 
     /**
@@ -351,7 +646,8 @@ public final class TagHelper {
         if (blockState == null) {
             return false;
         }
-        return TagManager.BLOCK.containsKey(blockState.getBlock());
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.CONTAINS, null, BlockStateIndex.containsKey(blockState), start);
     }
 
     /**
@@ -362,11 +658,8 @@ public final class TagHelper {
             return false;
         }
 
-        var world = blockEntity.getWorld();
-        var pos = blockEntity.getPos();
-        var blockState = world.getBlockState(pos);
-
-        return TagManager.BLOCK.containsKey(blockState.getBlock());
+        long start = TagProfiler.start();
+        return TagProfiler.record(TagType.BLOCK, TagProfiler.Query.CONTAINS, null, TileEntityIndex.containsKey(blockEntity), start);
     }
 
     /**
@@ -376,7 +669,7 @@ public final class TagHelper {
         return switch (type) {
             case ITEM -> TagManager.ITEM.getTagCount();
             case FLUID -> TagManager.FLUID.getTagCount();
-            case BLOCK -> TagManager.BLOCK.getTagCount();
+            case BLOCK -> BlockStateIndex.allTags().size();
         };
     }
 
@@ -384,7 +677,7 @@ public final class TagHelper {
      * Get the total number of tags across all types
      */
     public static int tagCount() {
-        return TagManager.ITEM.getTagCount() + TagManager.FLUID.getTagCount() + TagManager.BLOCK.getTagCount();
+        return TagManager.ITEM.getTagCount() + TagManager.FLUID.getTagCount() + BlockStateIndex.allTags().size();
     }
 
     /**
@@ -395,7 +688,8 @@ public final class TagHelper {
         return switch (type) {
             case ITEM -> TagManager.ITEM.getAssociations();
             case FLUID -> TagManager.FLUID.getAssociations();
-            case BLOCK -> TagManager.BLOCK.getAssociations();
+            case BLOCK -> TagManager.BLOCK.getAssociations() + TagManager.BLOCK_STATE.getAssociations()
+                    + TagManager.TILE_ENTITY.getAssociations();
         };
     }
 
@@ -403,7 +697,8 @@ public final class TagHelper {
      * Get the total number of associations across all types
      */
     public static int associations() {
-        return TagManager.ITEM.getAssociations() + TagManager.FLUID.getAssociations() + TagManager.BLOCK.getAssociations();
+        return TagManager.ITEM.getAssociations() + TagManager.FLUID.getAssociations() + TagManager.BLOCK.getAssociations()
+                + TagManager.BLOCK_STATE.getAssociations() + TagManager.TILE_ENTITY.getAssociations();
     }
 
     /**
@@ -414,7 +709,8 @@ public final class TagHelper {
         return switch (type) {
             case ITEM -> TagManager.ITEM.getKeyCount();
             case FLUID -> TagManager.FLUID.getKeyCount();
-            case BLOCK -> TagManager.BLOCK.getKeyCount();
+            case BLOCK -> TagManager.BLOCK.getKeyCount() + TagManager.BLOCK_STATE.getKeyCount()
+                    + TagManager.TILE_ENTITY.getKeyCount();
         };
     }
 
@@ -422,7 +718,24 @@ public final class TagHelper {
      * Get the total number of unique keys across all types
      */
     public static int keyCount() {
-        return TagManager.ITEM.getKeyCount() + TagManager.FLUID.getKeyCount() + TagManager.BLOCK.getKeyCount();
+        return TagManager.ITEM.getKeyCount() + TagManager.FLUID.getKeyCount() + TagManager.BLOCK.getKeyCount()
+                + TagManager.BLOCK_STATE.getKeyCount() + TagManager.TILE_ENTITY.getKeyCount();
+    }
+
+    /**
+     * Turn query keys into the same elements {@link #element(String, TagType)} returns
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Set<T> elements(@Nonnull TagType type, @Nonnull Set<?> keys) {
+        if (keys.isEmpty() || type == TagType.BLOCK) {
+            return (Set<T>) keys;
+        }
+
+        var result = new ObjectOpenHashSet<Object>(keys.size());
+        for (var key : keys) {
+            result.add(type == TagType.ITEM ? ((ItemKey) key).toElement() : new FluidStack((Fluid) key, 1000));
+        }
+        return (Set<T>) Collections.unmodifiableSet(result);
     }
 
     private static boolean tagInvalid(@Nullable String tagName) {
@@ -0,0 +1,401 @@
+package com.gardenevery.tag;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.item.Item;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fml.common.Loader;
+
+import it.unimi.dsi.fastutil.objects.Object2ReferenceLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Loads tags from {@code data/<namespace>/tags/{items,blocks,fluids}/<path>.json} in mod jars, then from
+ * {@code config/tag/data/...}. Later files win: a file with {@code "replace": true} drops everything registered
+ * for its tag before it, including entries from code and the Ore Dictionary.
+ * <p>
+ * Files are read and parsed in parallel, one worker per source; registry lookups and the store update happen
+ * on the calling thread, through one batch per store.
+ */
+final class TagLoader {
+
+    private TagLoader() {}
+
+    private static final Logger LOGGER = LogManager.getLogger("TagLoader");
+    private static final Pattern TAG_FILE = Pattern.compile("data/([^/]+)/tags/(items|blocks|fluids)/(.+)\\.json");
+    static final String CONFIG_DIR = "tag";
+
+    public static void loadDataTags() {
+        loadDataTags(TagStores.live());
+    }
+
+    static void loadDataTags(TagStores stores) {
+        long startTime = System.nanoTime();
+        var sources = new LinkedHashSet<File>();
+        for (var mod : Loader.instance().getActiveModList()) {
+            if (mod.getSource() != null) {
+                sources.add(mod.getSource());
+            }
+        }
+        sources.add(new File(Loader.instance().getConfigDir(), CONFIG_DIR));
+
+        // ordered collect keeps mod order, so config files still override mod files
+        List<TagFile> files = sources.parallelStream()
+                .map(TagLoader::readSource)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+
+        if (files.isEmpty()) {
+            return;
+        }
+
+        var applied = apply(files, stores);
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000L;
+        LOGGER.info("Loaded {} tag files: {} entries, {} unresolved in {} ms", files.size(), applied.entries(), applied.unresolved(),
+                elapsedMillis);
+    }
+
+    private static List<TagFile> readSource(File source) {
+        if (!source.exists()) {
+            return Collections.emptyList();
+        }
+
+        var files = new ObjectArrayList<TagFile>();
+        try {
+            if (source.isDirectory()) {
+                var root = source.toPath();
+                var data = root.resolve("data");
+                if (!Files.isDirectory(data)) {
+                    return Collections.emptyList();
+                }
+
+                try (Stream<Path> paths = Files.walk(data)) {
+                    for (var path : paths.sorted().collect(Collectors.toList())) {
+                        var name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                        if (TAG_FILE.matcher(name).matches()) {
+                            try (var in = Files.newInputStream(path)) {
+                                addParsed(files, name, in, source);
+                            }
+                        }
+                    }
+                }
+            } else {
+                try (var zip = new ZipFile(source)) {
+                    var entries = zip.stream()
+                            .filter(entry -> !entry.isDirectory() && TAG_FILE.matcher(entry.getName()).matches())
+                            .sorted((a, b) -> a.getName().compareTo(b.getName()))
+                            .collect(Collectors.toList());
+                    for (var entry : entries) {
+                        try (var in = zip.getInputStream(entry)) {
+                            addParsed(files, entry.getName(), in, source);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read tags from {}", source, e);
+        }
+        return files;
+    }
+
+    private static void addParsed(List<TagFile> files, String name, InputStream in, File source) {
+        var file = parse(name, in, source);
+        if (file != null) {
+            files.add(file);
+        }
+    }
+
+    @Nullable
+    private static TagFile parse(String name, InputStream in, File source) {
+        var matcher = TAG_FILE.matcher(name);
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        var tagName = matcher.group(1) + ":" + matcher.group(3);
+        var type = switch (matcher.group(2)) {
+            case "items" -> TagType.ITEM;
+            case "fluids" -> TagType.FLUID;
+            default -> TagType.BLOCK;
+        };
+
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            var root = new JsonParser().parse(reader);
+            if (!root.isJsonObject()) {
+                throw new JsonParseException("Expected an object");
+            }
+
+            var json = root.getAsJsonObject();
+            boolean replace = json.has("replace") && json.get("replace").getAsBoolean();
+            var values = json.get("values");
+            if (values != null && !values.isJsonArray()) {
+                throw new JsonParseException("\"values\" is not an array");
+            }
+
+            var entries = new ObjectArrayList<Entry>();
+            if (values != null) {
+                for (var value : values.getAsJsonArray()) {
+                    try {
+                        entries.add(parseEntry(value));
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Skipping malformed entry {} in tag file {} in {}: {}", value, name, source.getName(), e.getMessage());
+                    }
+                }
+            }
+            return new TagFile(type, tagName, replace, entries, source.getName() + "/" + name);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Skipping malformed tag file {} in {}: {}", name, source.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static Entry parseEntry(JsonElement value) {
+        if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+            return Entry.of(value.getAsString(), -1, true);
+        }
+        if (!value.isJsonObject()) {
+            throw new JsonParseException("Expected an id or an object");
+        }
+
+        JsonObject object = value.getAsJsonObject();
+        var id = object.get("id");
+        if (id == null || !id.isJsonPrimitive() || !id.getAsJsonPrimitive().isString()) {
+            throw new JsonParseException("Entry without an id");
+        }
+
+        int meta = object.has("meta") ? parseMeta(object.get("meta")) : -1;
+        boolean required = !object.has("required") || object.get("required").getAsBoolean();
+        return Entry.of(id.getAsString(), meta, required);
+    }
+
+    /**
+     * A metadata value from 0 to 65535, or {@code "*"} for every metadata
+     */
+    private static int parseMeta(JsonElement meta) {
+        if (!meta.isJsonPrimitive()) {
+            throw new JsonParseException("Metadata is not a number");
+        }
+
+        var primitive = meta.getAsJsonPrimitive();
+        if (primitive.isString() && "*".equals(primitive.getAsString())) {
+            return ItemKey.WILDCARD;
+        }
+        if (!primitive.isNumber()) {
+            throw new JsonParseException("Metadata is not a number");
+        }
+
+        double value = primitive.getAsDouble();
+        if (value != Math.rint(value) || value < 0 || value > 65535) {
+            throw new JsonParseException("Metadata out of range: " + primitive);
+        }
+        return (int) value;
+    }
+
+    private static Applied apply(List<TagFile> files, TagStores stores) {
+        var items = new Pending<>(stores.items());
+        var fluids = new Pending<>(stores.fluids());
+        var blocks = new Pending<>(stores.blocks());
+        var states = new Pending<>(stores.blockStates());
+        var tileEntities = new Pending<>(stores.tileEntities());
+        var includes = new Object2ReferenceLinkedOpenHashMap<TagType, Object2ReferenceLinkedOpenHashMap<String, ObjectArrayList<String>>>();
+        int entries = 0;
+        int unresolved = 0;
+
+        for (var file : files) {
+            var tagName = file.tagName();
+            if (!AbstractTagBuilder.validateTagName(tagName)) {
+                LOGGER.warn("Skipping tag file {}: invalid tag name {}", file.origin(), tagName);
+                continue;
+            }
+
+            var nested = includes.computeIfAbsent(file.type(), k -> new Object2ReferenceLinkedOpenHashMap<>());
+            if (file.replace()) {
+                nested.remove(tagName);
+                switch (file.type()) {
+                    case ITEM -> items.replace(tagName);
+                    case FLUID -> fluids.replace(tagName);
+                    case BLOCK -> {
+                        blocks.replace(tagName);
+                        states.replace(tagName);
+                        tileEntities.replace(tagName);
+                    }
+                }
+            }
+
+            for (var entry : file.values()) {
+                if (entry.tag()) {
+                    if (!AbstractTagBuilder.validateTagName(entry.id())) {
+                        LOGGER.warn("Skipping include #{} in tag {} ({}): invalid tag name", entry.id(), tagName, file.origin());
+                        continue;
+                    }
+                    nested.computeIfAbsent(tagName, k -> new ObjectArrayList<>()).add(entry.id());
+                    entries++;
+                    continue;
+                }
+
+                boolean resolved;
+                try {
+                    resolved = switch (file.type()) {
+                        case ITEM -> resolveItem(entry, tagName, items);
+                        case FLUID -> resolveFluid(entry, tagName, fluids);
+                        case BLOCK -> resolveBlock(entry, tagName, blocks, states);
+                    };
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Skipping entry {} in tag {} ({}): {}", entry.id(), tagName, file.origin(), e.getMessage());
+                    continue;
+                }
+
+                if (resolved) {
+                    entries++;
+                } else if (entry.required()) {
+                    unresolved++;
+                    LOGGER.warn("Unknown entry {} in tag {} ({})", entry.id(), tagName, file.origin());
+                }
+            }
+        }
+
+        items.commit();
+        fluids.commit();
+        blocks.commit();
+        states.commit();
+        tileEntities.commit();
+
+        for (var byType : includes.object2ReferenceEntrySet()) {
+            for (var include : byType.getValue().object2ReferenceEntrySet()) {
+                for (var nestedTag : include.getValue()) {
+                    stores.includeTag(byType.getKey(), Collections.singleton(include.getKey()), nestedTag);
+                }
+            }
+        }
+        return new Applied(entries, unresolved);
+    }
+
+    private static boolean resolveItem(Entry entry, String tagName, Pending<ItemKey> items) {
+        var id = new ResourceLocation(entry.id());
+        if (!Item.REGISTRY.containsKey(id)) {
+            return false;
+        }
+
+        var key = ItemKey.of(Item.REGISTRY.getObject(id), Math.max(entry.meta(), 0));
+        if (key == null) {
+            return false;
+        }
+        items.add(tagName, key);
+        return true;
+    }
+
+    private static boolean resolveFluid(Entry entry, String tagName, Pending<Fluid> fluids) {
+        var fluid = FluidRegistry.getFluid(entry.id());
+        int separator = entry.id().indexOf(':');
+        if (fluid == null && separator >= 0) {
+            // Forge fluid names carry no namespace, so "minecraft:water" means "water"
+            fluid = FluidRegistry.getFluid(entry.id().substring(separator + 1));
+        }
+
+        if (fluid == null) {
+            return false;
+        }
+        fluids.add(tagName, fluid);
+        return true;
+    }
+
+    private static boolean resolveBlock(Entry entry, String tagName, Pending<Block> blocks, Pending<IBlockState> states) {
+        var id = new ResourceLocation(entry.id());
+        if (!Block.REGISTRY.containsKey(id)) {
+            return false;
+        }
+
+        var block = Block.REGISTRY.getObject(id);
+        if (entry.meta() < 0 || entry.meta() == ItemKey.WILDCARD) {
+            blocks.add(tagName, block);
+        } else if (entry.meta() > 15) {
+            // getStateFromMeta indexes fixed arrays on many blocks, so larger values must not reach it
+            throw new IllegalArgumentException("Block metadata out of range: " + entry.meta());
+        } else {
+            states.add(tagName, BlockStateIndex.canonical(block.getStateFromMeta(entry.meta())));
+        }
+        return true;
+    }
+
+    /**
+     * Entries collected for one store, committed in one batch after replaced tags are removed
+     */
+    private static final class Pending<T> {
+        private final Tag<T> store;
+        private final Object2ReferenceLinkedOpenHashMap<String, ObjectArrayList<T>> keys = new Object2ReferenceLinkedOpenHashMap<>();
+        private final ObjectOpenHashSet<String> replaced = new ObjectOpenHashSet<>();
+
+        Pending(Tag<T> store) {
+            this.store = store;
+        }
+
+        void replace(String tagName) {
+            replaced.add(tagName);
+            keys.remove(tagName);
+        }
+
+        void add(String tagName, T key) {
+            keys.computeIfAbsent(tagName, k -> new ObjectArrayList<>()).add(key);
+        }
+
+        void commit() {
+            if (!replaced.isEmpty()) {
+                store.removeTag(replaced);
+            }
+
+            var batch = store.batch();
+            for (var entry : keys.object2ReferenceEntrySet()) {
+                batch.addAll(entry.getKey(), entry.getValue());
+            }
+            batch.commit();
+        }
+    }
+
+    @Desugar
+    private record TagFile(TagType type, String tagName, boolean replace, List<Entry> values, String origin) {}
+
+    /**
+     * One value of a tag file: an element ID with optional metadata, or a {@code #namespace:path} tag reference
+     */
+    @Desugar
+    private record Entry(String id, int meta, boolean tag, boolean required) {
+        static Entry of(String id, int meta, boolean required) {
+            if (id.startsWith("#")) {
+                return new Entry(id.substring(1), -1, true, required);
+            }
+            return new Entry(id, meta, false, required);
+        }
+    }
+
+    @Desugar
+    private record Applied(int entries, int unresolved) {}
+}
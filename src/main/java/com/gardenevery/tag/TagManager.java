@@ -1,13 +1,27 @@
 package com.gardenevery.tag;
 
 import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraftforge.fluids.Fluid;
 
 final class TagManager {
 
     private TagManager() {}
 
-    public static final Tag<ItemKey> ITEM = new Tag<>();
-    public static final Tag<Fluid> FLUID = new Tag<>();
-    public static final Tag<Block> BLOCK = new Tag<>();
+    public static final Tag<ItemKey> ITEM = new Tag<>(TagType.ITEM);
+    public static final Tag<Fluid> FLUID = new Tag<>(TagType.FLUID);
+    public static final Tag<Block> BLOCK = new Tag<>(TagType.BLOCK);
+    /**
+     * Block tag entries for single states, in the same namespace as {@link #BLOCK}
+     */
+    public static final Tag<IBlockState> BLOCK_STATE = new Tag<>(TagType.BLOCK);
+    /**
+     * Block tag entries for tile entity classes, in the same namespace as {@link #BLOCK}
+     */
+    public static final Tag<Class<? extends TileEntity>> TILE_ENTITY = new Tag<>(TagType.BLOCK);
+
+    static void freeze() {
+        TagStores.live().freeze();
+    }
 }
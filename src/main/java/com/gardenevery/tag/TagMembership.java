@@ -0,0 +1,9 @@
+package com.gardenevery.tag;
+
+/**
+ * Membership test over interned key and tag IDs
+ */
+interface TagMembership {
+
+    boolean hasTag(int keyId, int tagId);
+}
@@ -0,0 +1,205 @@
+package com.gardenevery.tag;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
+
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.relauncher.Side;
+
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Estimated heap footprint of the frozen tag stores, for {@code /tag memory}.
+ * <p>
+ * Sizes follow the HotSpot layout of a 64-bit JVM with compressed references and Java 8 strings, and the table
+ * sizes fastutil picks for the default load factor. Registry objects (items, blocks, fluids, classes) are owned
+ * by the game and not counted; tag name strings are counted once per snapshot even when shared. Each store is
+ * compared with the same entries held as nested hash sets, as a store keeps them before freezing, and with a
+ * compact lower bound of UTF-8 names, one int per association and one reference per key. The report also
+ * counts the nested tag references each store keeps beside its snapshot and the caches built from snapshots:
+ * element views, the encoded sync payload, tooltip lines and tile entity class tags.
+ */
+final class TagMemory {
+
+    private TagMemory() {}
+
+    static final int HEADER = 12;
+    static final int REF = 4;
+    private static final int ARRAY_HEADER = 16;
+    /**
+     * A fastutil open hash map or set object without its tables
+     */
+    private static final int HASH_OBJECT = 56;
+    /**
+     * A snapshot object with its views and bitset array holder
+     */
+    private static final int SNAPSHOT_OBJECT = 128;
+    static final int ITEM_KEY = 24;
+    static final int BOXED_INT = 16;
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long array(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    static long string(String value) {
+        return align(HEADER + REF + 4) + array(value.length(), 2);
+    }
+
+    /**
+     * An open hash map or set holding {@code size} entries; {@code valueBytes} is 0 for a set
+     */
+    static long hashTable(int size, int valueBytes) {
+        int capacity = HashCommon.arraySize(size, Hash.DEFAULT_LOAD_FACTOR) + 1;
+        return HASH_OBJECT + array(capacity, REF) + (valueBytes > 0 ? array(capacity, valueBytes) : 0);
+    }
+
+    /**
+     * Estimate a snapshot whose distinct keys take {@code keyBytes} each
+     */
+    static <T> Estimate estimate(String store, TagSnapshot<T> snapshot, int keyBytes) {
+        int tagCount = snapshot.names.length;
+        int keyCount = snapshot.keys.length;
+
+        long names = array(tagCount, REF);
+        long utf8 = 0;
+        for (var name : snapshot.names) {
+            names += string(name);
+            utf8 += name.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        long membership = array(tagCount, REF) + array(keyCount, REF) + array(tagCount, REF);
+        for (int tagId = 0; tagId < tagCount; tagId++) {
+            membership += array(snapshot.tagKeys[tagId].length, 4);
+            var bits = snapshot.cachedBits(tagId);
+            if (bits != null) {
+                membership += array(bits.length, 8);
+            }
+        }
+        for (var row : snapshot.keyTags) {
+            membership += array(row.length, 4);
+        }
+
+        long lookup = hashTable(tagCount, 4) + hashTable(keyCount, 4);
+        long keys = SNAPSHOT_OBJECT + array(keyCount, REF) + (long) keyCount * keyBytes;
+
+        long hashSets = hashTable(tagCount, REF) + hashTable(keyCount, REF) + (names - array(tagCount, REF))
+                + (long) keyCount * keyBytes;
+        for (var row : snapshot.tagKeys) {
+            hashSets += hashTable(row.length, 0);
+        }
+        for (var row : snapshot.keyTags) {
+            hashSets += hashTable(Math.max(row.length, 2), 0);
+        }
+
+        long compact = utf8 + 4L * snapshot.associations + (long) REF * keyCount + (long) keyCount * keyBytes;
+        return new Estimate(store, tagCount, keyCount, snapshot.associations, names, membership, lookup, keys, hashSets, compact);
+    }
+
+    /**
+     * Get the estimated size of every tag of a snapshot: its name, its key IDs in both directions and its bitset
+     */
+    static <T> List<TagSize> tagSizes(String store, TagSnapshot<T> snapshot) {
+        var sizes = new ObjectArrayList<TagSize>(snapshot.names.length);
+        for (int tagId = 0; tagId < snapshot.names.length; tagId++) {
+            int entries = snapshot.tagKeys[tagId].length;
+            long bytes = REF + string(snapshot.names[tagId]) + array(entries, 4) + 4L * entries;
+            var bits = snapshot.cachedBits(tagId);
+            if (bits != null) {
+                bytes += array(bits.length, 8);
+            }
+            sizes.add(new TagSize(store, snapshot.names[tagId], entries, bytes));
+        }
+        return sizes;
+    }
+
+    /**
+     * Estimate the five live stores, their nested tag references, and the derived indexes and caches that have
+     * been built
+     */
+    static Report report(int limit) {
+        var estimates = new ObjectArrayList<Estimate>();
+        var tagSizes = new ObjectArrayList<TagSize>();
+        add(estimates, tagSizes, "item", TagManager.ITEM.snapshot(), ITEM_KEY);
+        add(estimates, tagSizes, "fluid", TagManager.FLUID.snapshot(), 0);
+        add(estimates, tagSizes, "block", TagManager.BLOCK.snapshot(), 0);
+        add(estimates, tagSizes, "block state", TagManager.BLOCK_STATE.snapshot(), 0);
+        add(estimates, tagSizes, "tile entity", TagManager.TILE_ENTITY.snapshot(), 0);
+
+        long indexes = 0;
+        var itemIndex = ItemIndex.peek();
+        if (itemIndex != null) {
+            indexes += itemIndex.estimateBytes();
+        }
+        var stateIndex = BlockStateIndex.peek();
+        if (stateIndex != null) {
+            indexes += stateIndex.estimateBytes();
+        }
+
+        long references = TagManager.ITEM.estimateReferenceBytes() + TagManager.FLUID.estimateReferenceBytes()
+                + TagManager.BLOCK.estimateReferenceBytes() + TagManager.BLOCK_STATE.estimateReferenceBytes()
+                + TagManager.TILE_ENTITY.estimateReferenceBytes();
+        // tooltips exist only on the client; the check keeps the client-only class unloaded on a dedicated server
+        long tooltipLines = FMLCommonHandler.instance().getSide() == Side.CLIENT ? TagTooltip.estimateBytes() : 0;
+        var caches = new Caches(ElementCache.ITEM.estimateBytes() + ElementCache.FLUID.estimateBytes(), TagSync.estimateBytes(),
+                tooltipLines, TileEntityIndex.estimateBytes());
+
+        var largest = tagSizes.stream()
+                .sorted(Comparator.comparingLong(TagSize::bytes).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+        return new Report(estimates, references, indexes, caches, largest);
+    }
+
+    private static <T> void add(List<Estimate> estimates, List<TagSize> tagSizes, String store, @Nullable TagSnapshot<T> snapshot,
+                                int keyBytes) {
+        if (snapshot != null) {
+            estimates.add(estimate(store, snapshot, keyBytes));
+            tagSizes.addAll(tagSizes(store, snapshot));
+        }
+    }
+
+    /**
+     * Format a byte count with a binary unit
+     */
+    static String format(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KiB", bytes / 1024.0);
+        }
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+
+    @Desugar
+    record Estimate(String store, int tags, int keys, int associations, long names, long membership, long lookup, long keyTable,
+                    long hashSets, long compact) {
+        long total() {
+            return names + membership + lookup + keyTable;
+        }
+    }
+
+    @Desugar
+    record TagSize(String store, String tagName, int entries, long bytes) {}
+
+    @Desugar
+    record Caches(long elementViews, long syncPayload, long tooltipLines, long tileEntityClasses) {
+        long total() {
+            return elementViews + syncPayload + tooltipLines + tileEntityClasses;
+        }
+    }
+
+    @Desugar
+    record Report(List<Estimate> stores, long references, long indexes, Caches caches, List<TagSize> largest) {}
+}
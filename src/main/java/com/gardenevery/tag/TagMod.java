@@ -4,11 +4,19 @@ import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.event.FMLLoadCompleteEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppedEvent;
 
 @Mod(modid = Tags.MOD_ID, name = Tags.MOD_NAME, version = Tags.VERSION)
 public class TagMod {
 
+    @Mod.EventHandler
+    public void preInit(FMLPreInitializationEvent event) {
+        TagSync.register();
+        MinecraftForge.EVENT_BUS.register(new TagSync());
+    }
+
     @Mod.EventHandler
     public void postInit(FMLPostInitializationEvent event) {
         var tooltipEventHandler = new TagTooltip();
@@ -17,12 +25,30 @@ public class TagMod {
 
     @Mod.EventHandler
     public void onFMLoadComplete(FMLLoadCompleteEvent event) {
-        OreSync.oreDictionarySync();
+        TagReload.captureBaseline();
+        boolean cached = TagCache.load();
+        if (!cached) {
+            OreSync.oreDictionarySync();
+            TagLoader.loadDataTags();
+        }
         AbstractTagBuilder.closeRegistration();
+        TagManager.freeze();
+        if (!cached) {
+            TagCache.save();
+        }
+        MinecraftForge.EVENT_BUS.register(new OreSyncHandler());
+        if (TagConfig.oreDictionaryBridge) {
+            OreBridge.enable();
+        }
     }
 
     @Mod.EventHandler
     public void onServerStarting(FMLServerStartingEvent event) {
         event.registerServerCommand(new TagCommand());
     }
+
+    @Mod.EventHandler
+    public void onServerStopped(FMLServerStoppedEvent event) {
+        TagSync.reset();
+    }
 }
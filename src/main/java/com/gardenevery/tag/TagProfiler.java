@@ -0,0 +1,280 @@
+package com.gardenevery.tag;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * Optional counters around the {@link TagHelper} lookups, driven by {@code /tag profile}.
+ * <p>
+ * Compiled in only when the game starts with {@code -Dtag.profile=true}: {@link #ENABLED} is a static final
+ * flag, so with it off every hook folds to a constant and the lookups cost the same as without profiling.
+ * While recording, each lookup bumps striped counters per tag type and query; one lookup in
+ * {@link #SAMPLE_RATE} is timed into a log2 histogram, and one timed lookup in {@link #CALLER_RATE} also
+ * records its caller from the stack trace. Invalid arguments return before any hook and are not counted.
+ */
+final class TagProfiler {
+
+    private TagProfiler() {}
+
+    static final boolean ENABLED = Boolean.getBoolean("tag.profile");
+
+    private static final int SAMPLE_RATE = 64;
+    private static final int CALLER_RATE = 16;
+    private static final int MAX_NAMES = 4096;
+    private static final long IDLE = Long.MIN_VALUE;
+    private static final long UNTIMED = Long.MIN_VALUE + 1;
+    private static final String PACKAGE = TagProfiler.class.getPackage().getName() + ".";
+
+    private static final Stats[] STATS = new Stats[TagType.values().length * Query.values().length];
+    @SuppressWarnings("unchecked")
+    private static final Map<String, LongAdder>[] TAG_NAMES = new Map[TagType.values().length];
+    private static final Map<String, LongAdder> CALLERS = new ConcurrentHashMap<>();
+
+    private static volatile boolean active;
+    private static volatile boolean started;
+    private static volatile long startedAt;
+    private static volatile long stoppedAt;
+
+    static {
+        for (int i = 0; i < STATS.length; i++) {
+            STATS[i] = new Stats();
+        }
+        for (int i = 0; i < TAG_NAMES.length; i++) {
+            TAG_NAMES[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    enum Query {
+        TAGS,
+        SORTED_TAGS,
+        HAS_TAG,
+        HAS_ANY_TAGS,
+        HAS_ALL_TAGS,
+        CONTAINS,
+        ELEMENTS
+    }
+
+    /**
+     * Call before a lookup; the result is passed on to {@code record}
+     */
+    static long start() {
+        if (!ENABLED || !active) {
+            return IDLE;
+        }
+        return ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0 ? System.nanoTime() : UNTIMED;
+    }
+
+    static boolean record(TagType type, Query query, @Nullable String tagName, boolean result, long start) {
+        if (ENABLED && start != IDLE) {
+            count(type, query, tagName, result, start);
+        }
+        return result;
+    }
+
+    /**
+     * Record a lookup returning a collection, which is a hit when not empty
+     */
+    static <C extends Collection<?>> C record(TagType type, Query query, @Nullable String tagName, C result, long start) {
+        if (ENABLED && start != IDLE) {
+            count(type, query, tagName, !result.isEmpty(), start);
+        }
+        return result;
+    }
+
+    private static void count(TagType type, Query query, @Nullable String tagName, boolean hit, long start) {
+        var stats = STATS[type.ordinal() * Query.values().length + query.ordinal()];
+        stats.calls.increment();
+        if (hit) {
+            stats.hits.increment();
+        }
+        if (start != UNTIMED) {
+            stats.time(System.nanoTime() - start);
+            if (ThreadLocalRandom.current().nextInt(CALLER_RATE) == 0) {
+                increment(CALLERS, caller());
+            }
+        }
+        if (tagName != null) {
+            increment(TAG_NAMES[type.ordinal()], tagName);
+        }
+    }
+
+    /**
+     * Clear the counters and start recording
+     */
+    static void begin() {
+        active = false;
+        for (var stats : STATS) {
+            stats.reset();
+        }
+        for (var names : TAG_NAMES) {
+            names.clear();
+        }
+        CALLERS.clear();
+        startedAt = System.nanoTime();
+        started = true;
+        active = true;
+    }
+
+    static void end() {
+        if (active) {
+            active = false;
+            stoppedAt = System.nanoTime();
+        }
+    }
+
+    static boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Check if anything has been recorded since the game started
+     */
+    static boolean hasRun() {
+        return started;
+    }
+
+    /**
+     * Get the counters recorded so far, with the {@code limit} most queried tags and most frequent callers
+     */
+    static Report report(int limit) {
+        long elapsed = Math.max(1, (active ? System.nanoTime() : stoppedAt) - startedAt);
+        var rows = new ObjectArrayList<Row>();
+        for (var type : TagType.values()) {
+            for (var query : Query.values()) {
+                var stats = STATS[type.ordinal() * Query.values().length + query.ordinal()];
+                long calls = stats.calls.sum();
+                if (calls == 0) {
+                    continue;
+                }
+
+                long timed = stats.timed.sum();
+                rows.add(new Row(type, query, calls, stats.hits.sum(), calls * 1_000_000_000.0 / elapsed,
+                        timed == 0 ? 0 : stats.nanos.sum() / timed, stats.percentile(0.5), stats.percentile(0.99)));
+            }
+        }
+
+        var tagNames = new ObjectArrayList<Count>();
+        for (var type : TagType.values()) {
+            for (var entry : TAG_NAMES[type.ordinal()].entrySet()) {
+                tagNames.add(new Count(type + " " + entry.getKey(), entry.getValue().sum()));
+            }
+        }
+        return new Report(elapsed / 1_000_000L, rows, top(tagNames, limit), top(counts(CALLERS), limit));
+    }
+
+    private static List<Count> counts(Map<String, LongAdder> map) {
+        var counts = new ObjectArrayList<Count>(map.size());
+        for (var entry : map.entrySet()) {
+            counts.add(new Count(entry.getKey(), entry.getValue().sum()));
+        }
+        return counts;
+    }
+
+    private static List<Count> top(List<Count> counts, int limit) {
+        return counts.stream()
+                .sorted(Comparator.comparingLong(Count::count).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static void increment(Map<String, LongAdder> counts, String name) {
+        var count = counts.get(name);
+        if (count == null) {
+            // stop tracking new names once the map is full, so random names cannot grow it without bound
+            if (counts.size() >= MAX_NAMES) {
+                return;
+            }
+            count = counts.computeIfAbsent(name, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * The first frame outside this mod
+     */
+    private static String caller() {
+        for (var frame : new Throwable().getStackTrace()) {
+            if (!frame.getClassName().startsWith(PACKAGE)) {
+                return frame.getClassName() + "." + frame.getMethodName();
+            }
+        }
+        return "unknown";
+    }
+
+    private static final class Stats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder hits = new LongAdder();
+        final LongAdder timed = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        /**
+         * Bucket {@code i} counts timings in {@code [2^i, 2^(i+1))} nanoseconds
+         */
+        final LongAdder[] buckets = new LongAdder[Long.SIZE];
+
+        Stats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void time(long elapsed) {
+            long value = Math.max(1, elapsed);
+            timed.increment();
+            nanos.add(value);
+            buckets[63 - Long.numberOfLeadingZeros(value)].increment();
+        }
+
+        /**
+         * Upper bound of the bucket holding the given fraction of the timings
+         */
+        long percentile(double fraction) {
+            long total = 0;
+            for (var bucket : buckets) {
+                total += bucket.sum();
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long target = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= target) {
+                    return i >= 62 ? Long.MAX_VALUE : 1L << (i + 1);
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        void reset() {
+            calls.reset();
+            hits.reset();
+            timed.reset();
+            nanos.reset();
+            for (var bucket : buckets) {
+                bucket.reset();
+            }
+        }
+    }
+
+    @Desugar
+    record Row(TagType type, Query query, long calls, long hits, double callsPerSecond, long meanNanos, long p50Nanos, long p99Nanos) {}
+
+    @Desugar
+    record Count(String name, long count) {}
+
+    @Desugar
+    record Report(long elapsedMillis, List<Row> rows, List<Count> tags, List<Count> callers) {}
+}
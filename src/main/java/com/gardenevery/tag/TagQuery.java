@@ -0,0 +1,248 @@
+package com.gardenevery.tag;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Set algebra over the keys of several tags.
+ * <p>
+ * On a frozen store every tag is a bitset over the snapshot's dense key IDs, so each operation is a pass of
+ * word-wide AND / OR / AND-NOT over {@code keyCount / 64} longs. Unknown tag names count as empty tags.
+ * Item tags are combined by the {@code item} variants, which let a wildcard key stand for every metadata of
+ * its item. Block tags span three stores and are combined by the {@code block} variants.
+ */
+final class TagQuery {
+
+    private TagQuery() {}
+
+    /**
+     * Keys present in every tag
+     */
+    static <T> Set<T> intersect(@Nonnull Tag<T> tag, @Nonnull String... tagNames) {
+        if (tagNames.length == 0) {
+            return Collections.emptySet();
+        }
+
+        var snapshot = tag.snapshot();
+        if (snapshot == null) {
+            var result = new ObjectOpenHashSet<>(tag.getKey(tagNames[0]));
+            for (int i = 1; i < tagNames.length && !result.isEmpty(); i++) {
+                result.retainAll(tag.getKey(tagNames[i]));
+            }
+            return Collections.unmodifiableSet(result);
+        }
+        return keys(snapshot, intersect(snapshot, snapshot::bits, tagNames));
+    }
+
+    /**
+     * Keys present in at least one tag
+     */
+    static <T> Set<T> union(@Nonnull Tag<T> tag, @Nonnull String... tagNames) {
+        var snapshot = tag.snapshot();
+        if (snapshot == null) {
+            var result = new ObjectOpenHashSet<T>();
+            for (var tagName : tagNames) {
+                result.addAll(tag.getKey(tagName));
+            }
+            return Collections.unmodifiableSet(result);
+        }
+        return keys(snapshot, union(snapshot, snapshot::bits, tagNames));
+    }
+
+    /**
+     * Keys in the first tag that are in none of the others
+     */
+    static <T> Set<T> difference(@Nonnull Tag<T> tag, @Nonnull String tagName, @Nonnull String... excluded) {
+        var snapshot = tag.snapshot();
+        if (snapshot == null) {
+            var result = new ObjectOpenHashSet<>(tag.getKey(tagName));
+            for (int i = 0; i < excluded.length && !result.isEmpty(); i++) {
+                result.removeAll(tag.getKey(excluded[i]));
+            }
+            return Collections.unmodifiableSet(result);
+        }
+        return keys(snapshot, difference(snapshot, snapshot::bits, tagName, excluded));
+    }
+
+    /**
+     * {@link #intersect(Tag, String...)} over the item store: a metadata key matches a tag that has its item's
+     * wildcard key, and metadata keys covered by a wildcard key in the result are left out
+     */
+    static Set<ItemKey> itemIntersect(@Nonnull String... tagNames) {
+        if (tagNames.length == 0) {
+            return Collections.emptySet();
+        }
+
+        var index = ItemIndex.current();
+        var words = intersect(index.snapshot, index::bits, tagNames);
+        if (words != null) {
+            index.dropCovered(words);
+        }
+        return keys(index.snapshot, words);
+    }
+
+    /**
+     * {@link #union(Tag, String...)} over the item store, with wildcard keys as for {@link #itemIntersect}
+     */
+    static Set<ItemKey> itemUnion(@Nonnull String... tagNames) {
+        var index = ItemIndex.current();
+        var words = union(index.snapshot, index::bits, tagNames);
+        index.dropCovered(words);
+        return keys(index.snapshot, words);
+    }
+
+    /**
+     * {@link #difference(Tag, String, String...)} over the item store, with wildcard keys as for
+     * {@link #itemIntersect}. A wildcard key is kept only if none of its item's metadata keys is excluded;
+     * otherwise its metadata keys that are not excluded take its place.
+     */
+    static Set<ItemKey> itemDifference(@Nonnull String tagName, @Nonnull String... excluded) {
+        var index = ItemIndex.current();
+        var words = difference(index.snapshot, index::bits, tagName, excluded);
+        if (words != null) {
+            index.dropExcludedWildcards(words);
+            index.dropCovered(words);
+        }
+        return keys(index.snapshot, words);
+    }
+
+    /**
+     * {@link #intersect(Tag, String...)} across the block, block state and tile entity stores
+     */
+    static Set<Object> blockIntersect(@Nonnull String... tagNames) {
+        if (tagNames.length == 0) {
+            return Collections.emptySet();
+        }
+        return blocks(snapshot -> intersect(snapshot, snapshot::bits, tagNames), tag -> intersect(tag, tagNames));
+    }
+
+    /**
+     * {@link #union(Tag, String...)} across the block, block state and tile entity stores
+     */
+    static Set<Object> blockUnion(@Nonnull String... tagNames) {
+        return blocks(snapshot -> union(snapshot, snapshot::bits, tagNames), tag -> union(tag, tagNames));
+    }
+
+    /**
+     * {@link #difference(Tag, String, String...)} across the block, block state and tile entity stores
+     */
+    static Set<Object> blockDifference(@Nonnull String tagName, @Nonnull String... excluded) {
+        return blocks(snapshot -> difference(snapshot, snapshot::bits, tagName, excluded), tag -> difference(tag, tagName, excluded));
+    }
+
+    /**
+     * Whole blocks and single states are combined per state through {@link BlockStateIndex}, so a block in one
+     * tag and one of its states in another intersect to that state; tile entity classes are combined on their own.
+     * Before freezing each store is combined on its own.
+     */
+    private static Set<Object> blocks(@Nonnull Function<TagSnapshot<Integer>, long[]> frozen, @Nonnull Function<Tag<?>, Set<?>> mutable) {
+        var result = new ObjectOpenHashSet<Object>(mutable.apply(TagManager.TILE_ENTITY));
+        var index = BlockStateIndex.current();
+        if (index == null) {
+            result.addAll(mutable.apply(TagManager.BLOCK));
+            result.addAll(mutable.apply(TagManager.BLOCK_STATE));
+        } else {
+            var words = frozen.apply(index.stateTags);
+            if (words != null) {
+                index.addElements(words, result);
+            }
+        }
+        return result.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Bitset of the keys present in every tag, or null if one of them does not exist
+     */
+    @Nullable
+    private static long[] intersect(@Nonnull TagSnapshot<?> snapshot, @Nonnull IntFunction<long[]> bitsOf, @Nonnull String[] tagNames) {
+        long[] words = null;
+        for (var tagName : tagNames) {
+            int tagId = snapshot.tagId(tagName);
+            if (tagId < 0) {
+                return null;
+            }
+
+            var bits = bitsOf.apply(tagId);
+            if (words == null) {
+                words = bits.clone();
+            } else {
+                for (int i = 0; i < words.length; i++) {
+                    words[i] &= bits[i];
+                }
+            }
+        }
+        return words;
+    }
+
+    private static long[] union(@Nonnull TagSnapshot<?> snapshot, @Nonnull IntFunction<long[]> bitsOf, @Nonnull String[] tagNames) {
+        var words = new long[(snapshot.keys.length + 63) >>> 6];
+        for (var tagName : tagNames) {
+            int tagId = snapshot.tagId(tagName);
+            if (tagId < 0) {
+                continue;
+            }
+
+            var bits = bitsOf.apply(tagId);
+            for (int i = 0; i < words.length; i++) {
+                words[i] |= bits[i];
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Bitset of the keys of a tag that are in none of the excluded tags, or null if the tag does not exist
+     */
+    @Nullable
+    private static long[] difference(@Nonnull TagSnapshot<?> snapshot, @Nonnull IntFunction<long[]> bitsOf, @Nonnull String tagName,
+                                     @Nonnull String[] excluded) {
+        int tagId = snapshot.tagId(tagName);
+        if (tagId < 0) {
+            return null;
+        }
+
+        var words = bitsOf.apply(tagId).clone();
+        for (var other : excluded) {
+            int otherId = snapshot.tagId(other);
+            if (otherId < 0) {
+                continue;
+            }
+
+            var bits = bitsOf.apply(otherId);
+            for (int i = 0; i < words.length; i++) {
+                words[i] &= ~bits[i];
+            }
+        }
+        return words;
+    }
+
+    private static <T> Set<T> keys(TagSnapshot<T> snapshot, @Nullable long[] words) {
+        if (words == null) {
+            return Collections.emptySet();
+        }
+
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        if (count == 0) {
+            return Collections.emptySet();
+        }
+
+        var result = new ObjectOpenHashSet<T>(count);
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                result.add(snapshot.key((i << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+}
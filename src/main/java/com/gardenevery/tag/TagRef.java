@@ -0,0 +1,143 @@
+package com.gardenevery.tag;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+/**
+ * A tag name resolved once against the frozen tag store.
+ * <p> Obtain one with {@link TagHelper#ref(TagType, String)} and keep it, e.g. in a static final field:
+ * <p> private static final TagRef INGOTS = TagHelper.ref(TagType.ITEM, "forge:ingots");
+ * <p> INGOTS.matches(stack);
+ */
+public final class TagRef {
+
+    private final TagType type;
+    private final String tagName;
+    private Binding binding;
+
+    TagRef(@Nonnull TagType type, @Nullable String tagName) {
+        this.type = type;
+        this.tagName = tagName == null ? "" : tagName;
+    }
+
+    @Nonnull
+    public TagType type() {
+        return type;
+    }
+
+    @Nonnull
+    public String name() {
+        return tagName;
+    }
+
+    /**
+     * Check if an item has this tag
+     */
+    public boolean matches(@Nullable ItemStack stack) {
+        if (type != TagType.ITEM || stack == null || stack.isEmpty()) {
+            return false;
+        }
+
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            return TagHelper.hasTag(stack, tagName);
+        }
+
+        // the index keeps the snapshot's tag IDs
+        int tagId = resolve(snapshot);
+        var index = ItemIndex.of(snapshot);
+        return tagId >= 0 && index.hasTag(index.keyId(stack.getItem(), stack.getMetadata()), tagId);
+    }
+
+    /**
+     * Check if an item and metadata has this tag
+     */
+    public boolean matches(@Nullable Item item, int metadata) {
+        if (type != TagType.ITEM || item == null) {
+            return false;
+        }
+
+        var snapshot = TagManager.ITEM.snapshot();
+        if (snapshot == null) {
+            return TagHelper.hasTag(item, metadata, tagName);
+        }
+
+        int tagId = resolve(snapshot);
+        var index = ItemIndex.of(snapshot);
+        return tagId >= 0 && index.hasTag(index.keyId(item, metadata), tagId);
+    }
+
+    /**
+     * Check if a fluid has this tag
+     */
+    public boolean matches(@Nullable FluidStack stack) {
+        if (type != TagType.FLUID || stack == null || stack.getFluid() == null) {
+            return false;
+        }
+
+        var snapshot = TagManager.FLUID.snapshot();
+        if (snapshot == null) {
+            return TagHelper.hasTag(stack, tagName);
+        }
+
+        int tagId = resolve(snapshot);
+        return tagId >= 0 && snapshot.hasTag(snapshot.keyId(stack.getFluid()), tagId);
+    }
+
+    /**
+     * Check if a block has this tag
+     */
+    public boolean matches(@Nullable Block block) {
+        if (type != TagType.BLOCK || block == null) {
+            return false;
+        }
+
+        var snapshot = TagManager.BLOCK.snapshot();
+        if (snapshot == null) {
+            return TagHelper.hasTag(block, tagName);
+        }
+
+        int tagId = resolve(snapshot);
+        return tagId >= 0 && snapshot.hasTag(snapshot.keyId(block), tagId);
+    }
+
+    /**
+     * Check if a block state has this tag
+     */
+    public boolean matches(@Nullable IBlockState blockState) {
+        if (type != TagType.BLOCK || blockState == null) {
+            return false;
+        }
+
+        var index = BlockStateIndex.current();
+        if (index == null) {
+            return TagHelper.hasTag(blockState, tagName);
+        }
+        return index.hasTag(Block.getStateId(blockState), resolve(index.stateTags));
+    }
+
+    private int resolve(TagSnapshot<?> snapshot) {
+        var current = binding;
+        if (current == null || current.snapshot() != snapshot) {
+            current = new Binding(snapshot, snapshot.tagId(tagName));
+            binding = current;
+        }
+        return current.tagId();
+    }
+
+    @Override
+    public String toString() {
+        return type + ":" + tagName;
+    }
+
+    @Desugar
+    private record Binding(TagSnapshot<?> snapshot, int tagId) {}
+}
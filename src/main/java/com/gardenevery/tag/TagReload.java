@@ -0,0 +1,105 @@
+package com.gardenevery.tag;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraftforge.common.MinecraftForge;
+
+/**
+ * Runtime rebuild of all tag stores.
+ * <p>
+ * The tags registered from code are copied once, before the Ore Dictionary and data files are applied at load
+ * completion. A reload reads the Ore Dictionary on the calling thread, since the dictionary is not thread-safe,
+ * then starts from a fresh copy of that baseline, applies the dictionary entries and data files to the detached
+ * stores on a worker thread, freezes them, and only then publishes each snapshot into
+ * {@link TagManager}. Readers see either the old or the new snapshot of a store, never a partial one.
+ */
+final class TagReload {
+
+    private TagReload() {}
+
+    private static final Logger LOGGER = LogManager.getLogger("TagReload");
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    @Nullable
+    private static volatile TagStores baseline;
+
+    /**
+     * Remember the tags registered from code; must run before anything else is added at load completion
+     */
+    static void captureBaseline() {
+        baseline = TagStores.live().copy();
+    }
+
+    /**
+     * The tags registered from code, or null before loading completes
+     */
+    @Nullable
+    static TagStores baseline() {
+        return baseline;
+    }
+
+    static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    /**
+     * Read the Ore Dictionary, rebuild the stores on a worker thread, then post a {@link TagsReloadedEvent} through {@code mainThread}.
+     * Returns null if a reload is already in progress.
+     */
+    @Nullable
+    static CompletableFuture<Result> reload(Executor mainThread) {
+        var source = baseline;
+        if (source == null) {
+            throw new IllegalStateException("Tags cannot be reloaded before loading completes");
+        }
+        if (!RUNNING.compareAndSet(false, true)) {
+            return null;
+        }
+
+        OreSync.Entries ores;
+        try {
+            ores = OreSync.read();
+        } catch (RuntimeException e) {
+            RUNNING.set(false);
+            throw e;
+        }
+
+        return CompletableFuture.supplyAsync(() -> rebuild(source, ores), TagReload::startWorker)
+                .whenComplete((result, error) -> RUNNING.set(false))
+                .thenApplyAsync(result -> {
+                    MinecraftForge.EVENT_BUS.post(new TagsReloadedEvent(result.tagCount(), result.elapsedMillis()));
+                    return result;
+                }, mainThread);
+    }
+
+    private static Result rebuild(TagStores source, OreSync.Entries ores) {
+        long startTime = System.nanoTime();
+        var stores = source.copy();
+        OreSync.oreDictionarySync(stores.items(), ores);
+        TagLoader.loadDataTags(stores);
+        stores.freeze();
+        stores.publishTo(TagStores.live());
+        TagCache.save();
+
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000L;
+        int tagCount = TagHelper.tagCount();
+        LOGGER.info("Reloaded {} tags in {} ms", tagCount, elapsedMillis);
+        return new Result(tagCount, elapsedMillis);
+    }
+
+    private static void startWorker(Runnable task) {
+        var thread = new Thread(task, "Tag Reload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Desugar
+    record Result(int tagCount, long elapsedMillis) {}
+}
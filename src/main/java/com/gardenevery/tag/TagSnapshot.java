@@ -0,0 +1,662 @@
+package com.gardenevery.tag;
+
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Read-only, compacted form of a {@link Tag} store.
+ * <p>
+ * Tag names are interned to dense int IDs in sorted order and keys are numbered in the order they are
+ * first seen. Membership is kept as sorted {@code int[]} arrays in both directions, so a lookup is two
+ * hash probes followed by a binary search, and no per-key or per-tag hash sets are retained. Because tag IDs
+ * follow name order, every name set and list a snapshot hands out is already in alphabetical order.
+ */
+final class TagSnapshot<T> implements TagMembership {
+
+    private static final int[] NO_IDS = new int[0];
+
+    final String[] names;
+    final Object[] keys;
+    final int[][] keyTags;
+    final int[][] tagKeys;
+    final int associations;
+
+    /**
+     * Shared by snapshots appended from one another through {@link #withAdded(Map)}: they agree on every tag ID
+     * and on the ID of every key they both have
+     */
+    final Object lineage;
+
+    private final Object2IntOpenHashMap<String> nameIds;
+    private final Object2IntOpenHashMap<T> keyIds;
+    private final Set<String> allNames;
+    private final List<String> sortedNames;
+    private final Set<T> allKeys;
+    private final AtomicReferenceArray<long[]> tagBits;
+
+    private TagSnapshot(String[] names, Object[] keys, Object2IntOpenHashMap<T> keyIds, int[][] keyTags, int[][] tagKeys,
+                        int associations) {
+        this(names, keys, keyIds, keyTags, tagKeys, associations, nameIds(names), new Object());
+    }
+
+    private TagSnapshot(String[] names, Object[] keys, Object2IntOpenHashMap<T> keyIds, int[][] keyTags, int[][] tagKeys,
+                        int associations, Object2IntOpenHashMap<String> nameIds, Object lineage) {
+        this.names = names;
+        this.keys = keys;
+        this.keyIds = keyIds;
+        this.keyTags = keyTags;
+        this.tagKeys = tagKeys;
+        this.associations = associations;
+        this.nameIds = nameIds;
+        this.lineage = lineage;
+
+        this.allNames = Collections.unmodifiableSet(new NameSet(null));
+        this.sortedNames = Collections.unmodifiableList(Arrays.asList(names));
+        this.allKeys = Collections.unmodifiableSet(new KeySet(null));
+        this.tagBits = new AtomicReferenceArray<>(names.length);
+    }
+
+    private static Object2IntOpenHashMap<String> nameIds(String[] names) {
+        var nameIds = new Object2IntOpenHashMap<String>(names.length);
+        nameIds.defaultReturnValue(-1);
+        for (int i = 0; i < names.length; i++) {
+            nameIds.put(names[i], i);
+        }
+        return nameIds;
+    }
+
+    static <T> TagSnapshot<T> of(@Nonnull Map<String, ? extends Set<T>> tagToKeys) {
+        var names = tagToKeys.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+
+        var keyIds = new Object2IntOpenHashMap<T>();
+        keyIds.defaultReturnValue(-1);
+        var tagKeys = new int[names.length][];
+        int associations = 0;
+
+        for (int tagId = 0; tagId < names.length; tagId++) {
+            var members = tagToKeys.get(names[tagId]);
+            var ids = new int[members.size()];
+            int i = 0;
+
+            for (var key : members) {
+                int keyId = keyIds.getInt(key);
+                if (keyId < 0) {
+                    keyId = keyIds.size();
+                    keyIds.put(key, keyId);
+                }
+                ids[i++] = keyId;
+            }
+
+            Arrays.sort(ids);
+            tagKeys[tagId] = ids;
+            associations += ids.length;
+        }
+
+        var keys = new Object[keyIds.size()];
+        for (var entry : keyIds.object2IntEntrySet()) {
+            keys[entry.getIntValue()] = entry.getKey();
+        }
+        return build(names, keys, keyIds, tagKeys, associations);
+    }
+
+    /**
+     * Rebuild a snapshot from its raw tables, e.g. read back from the snapshot cache.
+     * {@code names} must be sorted and every {@code tagKeys} row sorted ascending.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> TagSnapshot<T> of(@Nonnull String[] names, @Nonnull Object[] keys, @Nonnull int[][] tagKeys) {
+        var keyIds = new Object2IntOpenHashMap<T>(keys.length);
+        keyIds.defaultReturnValue(-1);
+        for (int keyId = 0; keyId < keys.length; keyId++) {
+            keyIds.put((T) keys[keyId], keyId);
+        }
+
+        int associations = 0;
+        for (var ids : tagKeys) {
+            associations += ids.length;
+        }
+        return build(names, keys, keyIds, tagKeys, associations);
+    }
+
+    private static <T> TagSnapshot<T> build(String[] names, Object[] keys, Object2IntOpenHashMap<T> keyIds, int[][] tagKeys,
+                                            int associations) {
+        var counts = new int[keys.length];
+        for (var ids : tagKeys) {
+            for (int keyId : ids) {
+                counts[keyId]++;
+            }
+        }
+
+        var keyTags = new int[keys.length][];
+        for (int keyId = 0; keyId < keys.length; keyId++) {
+            keyTags[keyId] = new int[counts[keyId]];
+            counts[keyId] = 0;
+        }
+
+        // tag IDs are visited in ascending order, so every key's list comes out sorted
+        for (int tagId = 0; tagId < tagKeys.length; tagId++) {
+            for (int keyId : tagKeys[tagId]) {
+                keyTags[keyId][counts[keyId]++] = tagId;
+            }
+        }
+        keyIds.trim();
+        return new TagSnapshot<>(names, keys, keyIds, keyTags, tagKeys, associations);
+    }
+
+    /**
+     * This snapshot with {@code entries} added, sharing every row they leave unchanged; new keys are numbered after
+     * the existing ones. Returns null if an entry names a tag this snapshot does not have, since a new name would
+     * shift the ID of every tag after it.
+     */
+    @Nullable
+    TagSnapshot<T> withAdded(@Nonnull Map<String, ? extends Collection<T>> entries) {
+        for (var tagName : entries.keySet()) {
+            if (tagId(tagName) < 0) {
+                return null;
+            }
+        }
+
+        var ids = keyIds;
+        var rows = tagKeys;
+        var newKeys = new ObjectArrayList<Object>();
+        var addedTags = new Int2ObjectOpenHashMap<IntArrayList>();
+        int added = 0;
+
+        for (var entry : entries.entrySet()) {
+            int tagId = tagId(entry.getKey());
+            var row = tagKeys[tagId];
+            var addedKeys = new IntArrayList(entry.getValue().size());
+
+            for (var key : entry.getValue()) {
+                int keyId = ids.getInt(key);
+                if (keyId < 0) {
+                    if (ids == keyIds) {
+                        ids = keyIds.clone();
+                    }
+                    keyId = keys.length + newKeys.size();
+                    ids.put(key, keyId);
+                    newKeys.add(key);
+                } else if (keyId < keys.length && Arrays.binarySearch(row, keyId) >= 0) {
+                    continue;
+                }
+                addedKeys.add(keyId);
+            }
+
+            var sorted = distinctSorted(addedKeys);
+            if (sorted.length == 0) {
+                continue;
+            }
+            if (rows == tagKeys) {
+                rows = tagKeys.clone();
+            }
+            rows[tagId] = union(row, sorted);
+            for (int keyId : sorted) {
+                addedTags.computeIfAbsent(keyId, k -> new IntArrayList(1)).add(tagId);
+            }
+            added += sorted.length;
+        }
+
+        if (added == 0) {
+            return this;
+        }
+
+        var allKeys = Arrays.copyOf(keys, keys.length + newKeys.size());
+        for (int i = 0; i < newKeys.size(); i++) {
+            allKeys[keys.length + i] = newKeys.get(i);
+        }
+        var keyRows = Arrays.copyOf(keyTags, allKeys.length);
+        for (var entry : addedTags.int2ObjectEntrySet()) {
+            int keyId = entry.getIntKey();
+            var tagIds = distinctSorted(entry.getValue());
+            keyRows[keyId] = keyId < keys.length ? union(keyTags[keyId], tagIds) : tagIds;
+        }
+        return new TagSnapshot<>(names, allKeys, ids, keyRows, rows, associations + added, nameIds, lineage);
+    }
+
+    private static int[] distinctSorted(IntArrayList values) {
+        var sorted = values.toIntArray();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * Merge two sorted ID rows, keeping common IDs once
+     */
+    static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+
+        var result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[k++] = a[i++];
+                j++;
+            } else {
+                result[k++] = a[i] < b[j] ? a[i++] : b[j++];
+            }
+        }
+        while (i < a.length) {
+            result[k++] = a[i++];
+        }
+        while (j < b.length) {
+            result[k++] = b[j++];
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    static <T> TagSnapshot<T> empty() {
+        var keyIds = new Object2IntOpenHashMap<T>();
+        keyIds.defaultReturnValue(-1);
+        return new TagSnapshot<>(new String[0], new Object[0], keyIds, new int[0][], new int[0][], 0);
+    }
+
+    int tagId(@Nonnull String tagName) {
+        return nameIds.getInt(tagName);
+    }
+
+    int keyId(@Nonnull T key) {
+        return keyIds.getInt(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    T key(int keyId) {
+        return (T) keys[keyId];
+    }
+
+    int[] tagIds(int keyId) {
+        return keyId < 0 ? NO_IDS : keyTags[keyId];
+    }
+
+    int[] keyIds(int tagId) {
+        return tagId < 0 ? NO_IDS : tagKeys[tagId];
+    }
+
+    @Override
+    public boolean hasTag(int keyId, int tagId) {
+        if (keyId < 0 || tagId < 0) {
+            return false;
+        }
+        return Arrays.binarySearch(keyTags[keyId], tagId) >= 0;
+    }
+
+    /**
+     * Check if a tag of this snapshot has exactly the same keys in {@code other}
+     */
+    boolean sameKeys(int tagId, @Nonnull TagSnapshot<T> other) {
+        int otherId = other.tagId(names[tagId]);
+        if (otherId < 0) {
+            return false;
+        }
+
+        var ids = tagKeys[tagId];
+        if (ids.length != other.tagKeys[otherId].length) {
+            return false;
+        }
+        for (int keyId : ids) {
+            if (!other.hasTag(other.keyId(key(keyId)), otherId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Names of the tags added, removed or changed between two snapshots
+     */
+    static <T> Set<String> changedTags(@Nullable TagSnapshot<T> before, @Nonnull TagSnapshot<T> after) {
+        if (before == null) {
+            return after.getAllTag();
+        }
+
+        var changed = new ObjectOpenHashSet<String>();
+        for (var tagName : before.names) {
+            if (after.tagId(tagName) < 0) {
+                changed.add(tagName);
+            }
+        }
+        for (int tagId = 0; tagId < after.names.length; tagId++) {
+            if (!after.sameKeys(tagId, before)) {
+                changed.add(after.names[tagId]);
+            }
+        }
+        return changed.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * Merge two alphabetically sorted name lists, dropping duplicates
+     */
+    static List<String> mergeSorted(@Nonnull List<String> first, @Nonnull List<String> second) {
+        if (second.isEmpty()) {
+            return first;
+        }
+        if (first.isEmpty()) {
+            return second;
+        }
+
+        var merged = new String[first.size() + second.size()];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < first.size() || j < second.size()) {
+            String next;
+            if (j == second.size()) {
+                next = first.get(i++);
+            } else if (i == first.size()) {
+                next = second.get(j++);
+            } else {
+                int order = first.get(i).compareTo(second.get(j));
+                next = order <= 0 ? first.get(i++) : second.get(j++);
+                if (order == 0) {
+                    j++;
+                }
+            }
+            merged[size++] = next;
+        }
+        return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(merged, size)));
+    }
+
+    /**
+     * Membership of a tag as a bitset over key IDs, built on first use
+     */
+    long[] bits(int tagId) {
+        var words = tagBits.get(tagId);
+        if (words == null) {
+            words = new long[(keys.length + 63) >>> 6];
+            for (int keyId : tagKeys[tagId]) {
+                words[keyId >>> 6] |= 1L << keyId;
+            }
+            tagBits.set(tagId, words);
+        }
+        return words;
+    }
+
+    /**
+     * The bitset of a tag if {@link #bits(int)} has built it
+     */
+    @Nullable
+    long[] cachedBits(int tagId) {
+        return tagBits.get(tagId);
+    }
+
+    boolean hasAllTags(int keyId, @Nonnull Set<String> tagNames) {
+        if (keyId < 0) {
+            return false;
+        }
+
+        var tags = keyTags[keyId];
+        if (tags.length < tagNames.size()) {
+            return false;
+        }
+
+        for (var tagName : tagNames) {
+            int tagId = tagId(tagName);
+            if (tagId < 0 || Arrays.binarySearch(tags, tagId) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Set<String> tagsOf(int keyId) {
+        if (keyId < 0) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new NameSet(keyTags[keyId]));
+    }
+
+    /**
+     * Tag names of a sorted row of tag IDs, as a view over it
+     */
+    Set<String> tagSet(@Nonnull int[] tagIds) {
+        return tagIds.length == 0 ? Collections.emptySet() : Collections.unmodifiableSet(new NameSet(tagIds));
+    }
+
+    /**
+     * Tag names of a sorted row of tag IDs in alphabetical order, as a view over it
+     */
+    List<String> tagList(@Nonnull int[] tagIds) {
+        return tagIds.length == 0 ? Collections.emptyList() : new NameList(tagIds);
+    }
+
+    /**
+     * Tag names of a key in alphabetical order, as a view over its tag IDs
+     */
+    List<String> sortedTagsOf(int keyId) {
+        if (keyId < 0 || keyTags[keyId].length == 0) {
+            return Collections.emptyList();
+        }
+        return new NameList(keyTags[keyId]);
+    }
+
+    boolean hasAnyTag(int keyId, @Nonnull Set<String> tagNames) {
+        if (keyId < 0) {
+            return false;
+        }
+
+        var tags = keyTags[keyId];
+        if (tags.length <= tagNames.size()) {
+            // probing the caller's set with the key's few names beats a global lookup per requested name
+            for (int tagId : tags) {
+                if (tagNames.contains(names[tagId])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        for (var tagName : tagNames) {
+            int tagId = tagId(tagName);
+            if (tagId >= 0 && Arrays.binarySearch(tags, tagId) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Set<String> getTag(@Nonnull T key) {
+        return tagsOf(keyId(key));
+    }
+
+    public Set<T> getKey(@Nonnull String tagName) {
+        int tagId = tagId(tagName);
+        if (tagId < 0) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new KeySet(tagKeys[tagId]));
+    }
+
+    public Set<String> getAllTag() {
+        return allNames;
+    }
+
+    public List<String> getSortedTag(@Nonnull T key) {
+        return sortedTagsOf(keyId(key));
+    }
+
+    public List<String> getSortedAllTag() {
+        return sortedNames;
+    }
+
+    public Set<T> getAllKey() {
+        return allKeys;
+    }
+
+    public boolean hasTag(@Nonnull T key, @Nonnull String tagName) {
+        return hasTag(keyId(key), tagId(tagName));
+    }
+
+    public boolean hasAnyTag(@Nonnull T key, @Nonnull Set<String> tagNames) {
+        return hasAnyTag(keyId(key), tagNames);
+    }
+
+    public boolean hasAllTags(@Nonnull T key, @Nonnull Set<String> tagNames) {
+        return hasAllTags(keyId(key), tagNames);
+    }
+
+    public boolean doesTagExist(@Nonnull String tagName) {
+        return nameIds.containsKey(tagName);
+    }
+
+    public boolean containsKey(@Nonnull T key) {
+        return keyIds.containsKey(key);
+    }
+
+    public int getTagCount() {
+        return names.length;
+    }
+
+    public int getKeyCount() {
+        return keys.length;
+    }
+
+    public int getAssociations() {
+        return associations;
+    }
+
+    /**
+     * Set view over a sorted ID array, or over every ID when {@code ids} is null
+     */
+    private abstract static class IdSet<E> extends AbstractSet<E> {
+        private final int[] ids;
+
+        IdSet(int[] ids) {
+            this.ids = ids;
+        }
+
+        abstract int capacity();
+
+        abstract int lookup(Object o);
+
+        abstract E get(int id);
+
+        @Override
+        public boolean contains(Object o) {
+            int id = lookup(o);
+            if (id < 0) {
+                return false;
+            }
+            return ids == null || Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return ids == null ? capacity() : ids.length;
+        }
+
+        @Nonnull
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size();
+                }
+
+                @Override
+                public E next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    int id = ids == null ? index : ids[index];
+                    index++;
+                    return get(id);
+                }
+            };
+        }
+    }
+
+    private final class NameSet extends IdSet<String> {
+        NameSet(int[] ids) {
+            super(ids);
+        }
+
+        @Override
+        int capacity() {
+            return names.length;
+        }
+
+        @Override
+        int lookup(Object o) {
+            return o instanceof String ? nameIds.getInt(o) : -1;
+        }
+
+        @Override
+        String get(int id) {
+            return names[id];
+        }
+    }
+
+    private final class NameList extends AbstractList<String> implements RandomAccess {
+        private final int[] ids;
+
+        NameList(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public String get(int index) {
+            return names[ids[index]];
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    private final class KeySet extends IdSet<T> {
+        KeySet(int[] ids) {
+            super(ids);
+        }
+
+        @Override
+        int capacity() {
+            return keys.length;
+        }
+
+        @Override
+        int lookup(Object o) {
+            return o == null ? -1 : keyIds.getInt(o);
+        }
+
+        @Override
+        T get(int id) {
+            return key(id);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.gardenevery.tag;
+
+import java.util.Set;
+
+import com.github.bsideup.jabel.Desugar;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraftforge.fluids.Fluid;
+
+/**
+ * One complete set of tag stores: the live ones in {@link TagManager}, or a detached set being rebuilt
+ */
+@Desugar
+record TagStores(Tag<ItemKey> items, Tag<Fluid> fluids, Tag<Block> blocks, Tag<IBlockState> blockStates,
+                 Tag<Class<? extends TileEntity>> tileEntities) {
+
+    private static final TagStores LIVE = new TagStores(TagManager.ITEM, TagManager.FLUID, TagManager.BLOCK, TagManager.BLOCK_STATE,
+            TagManager.TILE_ENTITY);
+
+    static TagStores live() {
+        return LIVE;
+    }
+
+    TagStores copy() {
+        return new TagStores(items.copy(), fluids.copy(), blocks.copy(), blockStates.copy(), tileEntities.copy());
+    }
+
+    /**
+     * Record a nested tag reference; block tags reference the nested tag in all three block stores
+     */
+    void includeTag(TagType type, Set<String> tagNames, String nestedTag) {
+        switch (type) {
+            case ITEM -> items.includeTag(tagNames, nestedTag);
+            case FLUID -> fluids.includeTag(tagNames, nestedTag);
+            case BLOCK -> {
+                blocks.includeTag(tagNames, nestedTag);
+                blockStates.includeTag(tagNames, nestedTag);
+                tileEntities.includeTag(tagNames, nestedTag);
+            }
+        }
+    }
+
+    void freeze() {
+        items.freeze();
+        fluids.freeze();
+        blocks.freeze();
+        blockStates.freeze();
+        tileEntities.freeze();
+    }
+
+    /**
+     * Check if both sets currently publish the same snapshots
+     */
+    boolean sameSnapshots(TagStores other) {
+        return items.snapshot() == other.items.snapshot()
+                && fluids.snapshot() == other.fluids.snapshot()
+                && blocks.snapshot() == other.blocks.snapshot()
+                && blockStates.snapshot() == other.blockStates.snapshot()
+                && tileEntities.snapshot() == other.tileEntities.snapshot();
+    }
+
+    /**
+     * Replace the contents of {@code target} with the frozen snapshots of this set and their nested tag references,
+     * one volatile write per store
+     */
+    void publishTo(TagStores target) {
+        target.items.publish(items.published());
+        target.fluids.publish(fluids.published());
+        target.blocks.publish(blocks.published());
+        target.blockStates.publish(blockStates.published());
+        target.tileEntities.publish(tileEntities.published());
+    }
+}
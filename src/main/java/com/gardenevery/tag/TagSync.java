@@ -0,0 +1,515 @@
+package com.gardenevery.tag;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.item.Item;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.network.FMLNetworkEvent;
+import net.minecraftforge.fml.common.network.NetworkRegistry;
+import net.minecraftforge.fml.common.network.simpleimpl.SimpleNetworkWrapper;
+import net.minecraftforge.fml.relauncher.Side;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Sends the server's tags to remote clients, so tooltips and client-side checks agree with the server.
+ * <p>
+ * A player receives every store when logging in, and every remote player receives only the tags that changed
+ * after a {@code /tag reload} or, at the end of the server tick, after any other change to the live stores such
+ * as late Ore Dictionary entries. A client that misses a delta drops it and asks for every store again. Keys are
+ * sent as registry int IDs, which Forge has already synchronized during the handshake, with tag names and the
+ * few string keys in one {@link TagCodec} string table. Payloads above {@link #DEFLATE_THRESHOLD} bytes are
+ * deflated. Players on the integrated server's local connection share the stores with the server and receive
+ * nothing. The client's own tags come back when it disconnects.
+ */
+public class TagSync {
+
+    private static final Logger LOGGER = LogManager.getLogger("TagSync");
+    private static final int DEFLATE_THRESHOLD = 512;
+    private static final byte DEFLATED = 1;
+    private static final byte FULL = 0;
+    private static final byte DELTA = 1;
+
+    private static final TagCodec.KeyCodec<ItemKey> ITEM_CODEC = new TagCodec.KeyCodec<ItemKey>() {
+        @Override
+        public void write(ItemKey key, TagCodec.Output out) {
+            out.varInt(Item.getIdFromItem(key.item()));
+            out.varInt(TagCodec.zigZag(key.metadata()));
+        }
+
+        @Override
+        public ItemKey read(TagCodec.Input in) {
+            var item = Item.getItemById(in.varInt());
+            int metadata = TagCodec.unZigZag(in.varInt());
+            return item == null ? null : new ItemKey(item, metadata);
+        }
+    };
+
+    // fluid IDs are not part of the registry handshake, names are stable
+    private static final TagCodec.KeyCodec<Fluid> FLUID_CODEC = new TagCodec.KeyCodec<Fluid>() {
+        @Override
+        public void write(Fluid fluid, TagCodec.Output out) {
+            out.string(fluid.getName());
+        }
+
+        @Override
+        public Fluid read(TagCodec.Input in) {
+            return FluidRegistry.getFluid(in.string());
+        }
+    };
+
+    private static final TagCodec.KeyCodec<Block> BLOCK_CODEC = new TagCodec.KeyCodec<Block>() {
+        @Override
+        public void write(Block block, TagCodec.Output out) {
+            out.varInt(Block.getIdFromBlock(block));
+        }
+
+        @Override
+        public Block read(TagCodec.Input in) {
+            int id = in.varInt();
+            // unknown IDs map to air
+            var block = Block.getBlockById(id);
+            return Block.getIdFromBlock(block) == id ? block : null;
+        }
+    };
+
+    private static final TagCodec.KeyCodec<IBlockState> BLOCK_STATE_CODEC = new TagCodec.KeyCodec<IBlockState>() {
+        @Override
+        public void write(IBlockState state, TagCodec.Output out) {
+            out.varInt(Block.getStateId(state));
+        }
+
+        @Override
+        public IBlockState read(TagCodec.Input in) {
+            int id = in.varInt();
+            // unknown IDs map to air
+            var state = Block.getStateById(id);
+            return Block.getStateId(state) == id ? state : null;
+        }
+    };
+
+    private static final TagCodec.KeyCodec<Class<? extends TileEntity>> TILE_ENTITY_CODEC = new TagCodec.KeyCodec<Class<? extends TileEntity>>() {
+        @Override
+        public void write(Class<? extends TileEntity> type, TagCodec.Output out) {
+            out.string(type.getName());
+        }
+
+        @Override
+        public Class<? extends TileEntity> read(TagCodec.Input in) {
+            return TagCache.tileEntityClass(in.string());
+        }
+    };
+
+    private static SimpleNetworkWrapper channel;
+
+    /**
+     * Server: the stores as last sent to every player, the base of the next delta
+     */
+    @Nullable
+    private static TagStores synced;
+    private static int sequence;
+    private static volatile boolean changed;
+    /**
+     * Server: names of the tags reported changed since the last payload, per type
+     */
+    private static final Map<TagType, Set<String>> CHANGED_TAGS = new EnumMap<>(TagType.class);
+    @Nullable
+    private static FullPayload fullPayload;
+
+    /**
+     * Client: the client's own stores while it shows a server's tags
+     */
+    @Nullable
+    private static TagStores local;
+    private static int receivedSequence;
+    private static boolean awaitingFull;
+
+    static {
+        for (var type : TagType.values()) {
+            CHANGED_TAGS.put(type, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    static void register() {
+        channel = NetworkRegistry.INSTANCE.newSimpleChannel(Tags.MOD_ID);
+        channel.registerMessage(TagSyncMessage.Handler.class, TagSyncMessage.class, 0, Side.CLIENT);
+        channel.registerMessage(TagSyncRequest.Handler.class, TagSyncRequest.class, 1, Side.SERVER);
+        // runs on whichever thread changed the tags, so only mark them for the next server tick
+        TagEvents.addListener((type, changedTags) -> {
+            if (synced != null) {
+                CHANGED_TAGS.get(type).addAll(changedTags);
+                changed = true;
+            }
+        });
+    }
+
+    /**
+     * Forget what was sent, when the server stops
+     */
+    static void reset() {
+        synced = null;
+        sequence = 0;
+        fullPayload = null;
+        changed = false;
+        for (var changedTags : CHANGED_TAGS.values()) {
+            changedTags.clear();
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.player instanceof EntityPlayerMP) {
+            sendFull((EntityPlayerMP) event.player);
+        }
+    }
+
+    @SubscribeEvent
+    public void onTagsReloaded(TagsReloadedEvent event) {
+        sendDelta();
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && changed) {
+            sendDelta();
+        }
+    }
+
+    /**
+     * Send every store to a remote player, on login or when its client asks after missing a delta
+     */
+    static void sendFull(EntityPlayerMP player) {
+        if (!isRemote(player)) {
+            return;
+        }
+
+        // other players get pending changes as a delta first, so the full payload starts from the synced sequence
+        if (changed) {
+            sendDelta();
+        }
+        channel.sendTo(new TagSyncMessage(fullPayload()), player);
+    }
+
+    /**
+     * Send the tags changed since the last payload to every remote player
+     */
+    private static void sendDelta() {
+        changed = false;
+        var server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        var base = synced;
+        if (server == null || base == null) {
+            return;
+        }
+
+        var live = TagStores.live();
+        var out = new TagCodec.Output();
+        out.writeByte(DELTA);
+        out.varInt(sequence);
+        out.varInt(sequence + 1);
+        var items = drain(TagType.ITEM);
+        var fluids = drain(TagType.FLUID);
+        var blocks = drain(TagType.BLOCK);
+        int changedTags = writeDelta(out, items, base.items().snapshot(), live.items().snapshot(), ITEM_CODEC)
+                + writeDelta(out, fluids, base.fluids().snapshot(), live.fluids().snapshot(), FLUID_CODEC)
+                + writeDelta(out, blocks, base.blocks().snapshot(), live.blocks().snapshot(), BLOCK_CODEC)
+                + writeDelta(out, blocks, base.blockStates().snapshot(), live.blockStates().snapshot(), BLOCK_STATE_CODEC)
+                + writeDelta(out, blocks, base.tileEntities().snapshot(), live.tileEntities().snapshot(), TILE_ENTITY_CODEC);
+
+        synced = detach(live);
+        if (changedTags == 0) {
+            return;
+        }
+
+        sequence++;
+        var payload = finish(out);
+        int players = 0;
+        for (var player : server.getPlayerList().getPlayers()) {
+            if (isRemote(player)) {
+                channel.sendTo(new TagSyncMessage(payload), player);
+                players++;
+            }
+        }
+        LOGGER.info("Sent {} changed tags ({} bytes) to {} players", changedTags, payload.length, players);
+    }
+
+    @SubscribeEvent
+    public void onClientDisconnected(FMLNetworkEvent.ClientDisconnectionFromServerEvent event) {
+        // fired on the network thread; publishing a snapshot is safe from any thread
+        receivedSequence = 0;
+        awaitingFull = false;
+        var own = local;
+        if (own != null) {
+            local = null;
+            own.publishTo(TagStores.live());
+            LOGGER.debug("Restored local tags after disconnecting");
+        }
+    }
+
+    /**
+     * Check if the client shows a server's tags instead of its own
+     */
+    static boolean showsServerTags() {
+        return local != null;
+    }
+
+    /**
+     * Estimated bytes of the encoded full payload kept for logins; its stores share the live snapshots
+     */
+    static long estimateBytes() {
+        var cached = fullPayload;
+        return cached == null ? 0 : TagMemory.align(TagMemory.HEADER + 2 * TagMemory.REF) + TagMemory.array(cached.payload().length, 1);
+    }
+
+    private static boolean isRemote(EntityPlayerMP player) {
+        return player.connection != null && !player.connection.getNetworkManager().isLocalChannel();
+    }
+
+    /**
+     * The full payload for the current stores, encoded once and shared by every login
+     */
+    private static byte[] fullPayload() {
+        var live = TagStores.live();
+        var cached = fullPayload;
+        if (cached != null && cached.stores().sameSnapshots(live)) {
+            return cached.payload();
+        }
+
+        if (synced == null) {
+            synced = detach(live);
+        }
+
+        var stores = detach(live);
+        var out = new TagCodec.Output();
+        out.writeByte(FULL);
+        out.varInt(sequence);
+        out.varInt(sequence);
+        writeFull(out, stores.items().snapshot(), ITEM_CODEC);
+        writeFull(out, stores.fluids().snapshot(), FLUID_CODEC);
+        writeFull(out, stores.blocks().snapshot(), BLOCK_CODEC);
+        writeFull(out, stores.blockStates().snapshot(), BLOCK_STATE_CODEC);
+        writeFull(out, stores.tileEntities().snapshot(), TILE_ENTITY_CODEC);
+
+        var payload = finish(out);
+        fullPayload = new FullPayload(stores, payload);
+        LOGGER.debug("Encoded {} tags for clients in {} bytes", TagHelper.tagCount(), payload.length);
+        return payload;
+    }
+
+    private static <T> void writeFull(TagCodec.Output out, TagSnapshot<T> snapshot, TagCodec.KeyCodec<T> codec) {
+        out.varInt(0);
+        TagCodec.writeAllTags(out, snapshot, codec);
+    }
+
+    /**
+     * Take the tags reported changed so far; a name reported while draining stays for the next delta
+     */
+    private static Set<String> drain(TagType type) {
+        var drained = new ObjectOpenHashSet<String>();
+        var iterator = CHANGED_TAGS.get(type).iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * Write which of the reported tags were removed since {@code before}, then every reported tag that was added
+     * or changed, with all its keys. Only the reported tags are compared.
+     */
+    private static <T> int writeDelta(TagCodec.Output out, Set<String> reported, TagSnapshot<T> before, TagSnapshot<T> after,
+                                      TagCodec.KeyCodec<T> codec) {
+        var removed = new ObjectArrayList<String>();
+        var changed = new IntArrayList();
+        for (var tagName : reported) {
+            int tagId = after.tagId(tagName);
+            if (tagId < 0) {
+                if (before.tagId(tagName) >= 0) {
+                    removed.add(tagName);
+                }
+            } else if (!after.sameKeys(tagId, before)) {
+                changed.add(tagId);
+            }
+        }
+
+        out.varInt(removed.size());
+        for (var tagName : removed) {
+            out.string(tagName);
+        }
+        var changedIds = changed.toIntArray();
+        Arrays.sort(changedIds);
+        TagCodec.writeTags(out, after, changedIds, codec);
+        return removed.size() + changedIds.length;
+    }
+
+    private static byte[] finish(TagCodec.Output out) {
+        var raw = out.toByteArray();
+        var payload = new ByteArrayOutputStream(raw.length / 4 + 8);
+        if (raw.length <= DEFLATE_THRESHOLD) {
+            payload.write(0);
+            payload.write(raw, 0, raw.length);
+            return payload.toByteArray();
+        }
+
+        payload.write(DEFLATED);
+        TagCodec.writeVarInt(payload, raw.length);
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            var chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                payload.write(chunk, 0, length);
+            }
+        } finally {
+            deflater.end();
+        }
+        return payload.toByteArray();
+    }
+
+    /**
+     * Client: decode a payload and publish it into the live stores
+     */
+    static void receive(byte[] payload) {
+        try {
+            var in = ByteBuffer.wrap(payload);
+            byte flags = in.get();
+            ByteBuffer data;
+            if (flags == DEFLATED) {
+                var raw = new byte[TagCodec.readVarInt(in)];
+                var inflater = new Inflater();
+                try {
+                    inflater.setInput(payload, in.position(), in.remaining());
+                    int read = 0;
+                    while (read < raw.length && !inflater.finished()) {
+                        int length = inflater.inflate(raw, read, raw.length - read);
+                        if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new DataFormatException("Truncated tag payload");
+                        }
+                        read += length;
+                    }
+                } finally {
+                    inflater.end();
+                }
+                data = ByteBuffer.wrap(raw);
+            } else {
+                data = in.slice();
+            }
+
+            var input = new TagCodec.Input(data);
+            boolean full = input.readByte() == FULL;
+            int base = input.varInt();
+            int next = input.varInt();
+            if (!full && (awaitingFull || base != receivedSequence)) {
+                // applying it would leave the tags changed by the missed delta out of date
+                if (!awaitingFull) {
+                    awaitingFull = true;
+                    LOGGER.warn("Dropping tag update {} over {}, expected base {}; requesting all tags", next, receivedSequence, base);
+                    channel.sendToServer(new TagSyncRequest());
+                }
+                return;
+            }
+            awaitingFull = false;
+
+            if (local == null) {
+                local = detach(TagStores.live());
+            }
+
+            var live = TagStores.live();
+            int tags = apply(input, live.items(), ITEM_CODEC, full)
+                    + apply(input, live.fluids(), FLUID_CODEC, full)
+                    + apply(input, live.blocks(), BLOCK_CODEC, full)
+                    + apply(input, live.blockStates(), BLOCK_STATE_CODEC, full)
+                    + apply(input, live.tileEntities(), TILE_ENTITY_CODEC, full);
+            receivedSequence = next;
+            LOGGER.debug("Applied {} tags from the server ({} bytes)", tags, payload.length);
+        } catch (DataFormatException | RuntimeException e) {
+            LOGGER.error("Failed to apply tags from the server, keeping the current tags", e);
+        }
+    }
+
+    private static <T> int apply(TagCodec.Input in, Tag<T> live, TagCodec.KeyCodec<T> codec, boolean full) {
+        var removed = new ObjectOpenHashSet<String>();
+        for (int i = in.varInt(); i > 0; i--) {
+            removed.add(in.string());
+        }
+
+        var section = TagCodec.readTags(in, codec);
+        if (!full && removed.isEmpty() && section.names().length == 0) {
+            return 0;
+        }
+
+        var store = full ? new Tag<T>() : live.copy();
+        Collections.addAll(removed, section.names());
+        if (!full) {
+            store.removeTag(removed);
+        }
+
+        var batch = store.batch();
+        for (int tagId = 0; tagId < section.names().length; tagId++) {
+            List<T> keys = keys(section, tagId);
+            if (!keys.isEmpty()) {
+                batch.addAll(section.names()[tagId], keys);
+            }
+        }
+        batch.commit();
+        store.freeze();
+        live.publish(store.snapshot());
+        return section.names().length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> keys(TagCodec.Section section, int tagId) {
+        var ids = section.tagKeys()[tagId];
+        var keys = new ObjectArrayList<T>(ids.length);
+        for (int keyId : ids) {
+            var key = (T) section.keys()[keyId];
+            // keys the client does not know are dropped
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Stores holding only the current snapshots of {@code stores}
+     */
+    private static TagStores detach(TagStores stores) {
+        var detached = new TagStores(new Tag<>(), new Tag<>(), new Tag<>(), new Tag<>(), new Tag<>());
+        stores.publishTo(detached);
+        return detached;
+    }
+
+    @Desugar
+    private record FullPayload(TagStores stores, byte[] payload) {}
+}
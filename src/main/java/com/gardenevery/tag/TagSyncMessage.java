@@ -0,0 +1,42 @@
+package com.gardenevery.tag;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.INetHandler;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+/**
+ * Server to client tag payload, encoded and applied by {@link TagSync}
+ */
+public class TagSyncMessage implements IMessage {
+
+    private byte[] payload;
+
+    public TagSyncMessage() {}
+
+    TagSyncMessage(byte[] payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        payload = new byte[buf.readableBytes()];
+        buf.readBytes(payload);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        buf.writeBytes(payload);
+    }
+
+    public static class Handler implements IMessageHandler<TagSyncMessage, IMessage> {
+        @Override
+        public IMessage onMessage(TagSyncMessage message, MessageContext ctx) {
+            INetHandler netHandler = ctx.netHandler;
+            FMLCommonHandler.instance().getWorldThread(netHandler).addScheduledTask(() -> TagSync.receive(message.payload));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.gardenevery.tag;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+/**
+ * Client to server request for every store, sent by {@link TagSync} when a delta does not follow the tags the
+ * client has
+ */
+public class TagSyncRequest implements IMessage {
+
+    public TagSyncRequest() {}
+
+    @Override
+    public void fromBytes(ByteBuf buf) {}
+
+    @Override
+    public void toBytes(ByteBuf buf) {}
+
+    public static class Handler implements IMessageHandler<TagSyncRequest, IMessage> {
+        @Override
+        public IMessage onMessage(TagSyncRequest message, MessageContext ctx) {
+            var player = ctx.getServerHandler().player;
+            FMLCommonHandler.instance().getWorldThread(ctx.netHandler).addScheduledTask(() -> TagSync.sendFull(player));
+            return null;
+        }
+    }
+}
@@ -25,7 +25,10 @@
 package com.gardenevery.tag;
 
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import com.github.bsideup.jabel.Desugar;
 
 import net.minecraft.block.Block;
 import net.minecraft.client.resources.I18n;
@@ -33,6 +36,8 @@ import net.minecraft.init.Blocks;
 import net.minecraft.item.ItemStack;
 import net.minecraft.util.text.TextFormatting;
 import net.minecraftforge.event.entity.player.ItemTooltipEvent;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidStack;
 import net.minecraftforge.fluids.capability.CapabilityFluidHandler;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.relauncher.Side;
@@ -40,9 +45,26 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 
 import org.lwjgl.input.Keyboard;
 
+import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
+
 @SideOnly(Side.CLIENT)
 public class TagTooltip {
 
+    private static final String[] NO_LINES = new String[0];
+    private static final int MAX_CACHED = 4096;
+    /**
+     * Formatted, sorted lines per item and per contained fluid, dropped whenever any tag store changes.
+     * Tooltips are only built on the client thread.
+     */
+    private static final Object2ReferenceOpenHashMap<ItemKey, ItemLines> ITEM_LINES = new Object2ReferenceOpenHashMap<>();
+    private static final Reference2ReferenceOpenHashMap<Fluid, String[]> FLUID_LINES = new Reference2ReferenceOpenHashMap<>();
+    private static long cachedGeneration = -1;
+    /**
+     * Estimated bytes of the cached keys, records, arrays and line strings, kept for {@code /tag memory}
+     */
+    private static volatile long linesBytes;
+
     @SubscribeEvent
     public void onItemTooltip(ItemTooltipEvent event) {
         var stack = event.getItemStack();
@@ -63,45 +85,118 @@ public class TagTooltip {
     }
 
     private static void generateDetailedTooltip(ItemStack stack, List<String> tooltip) {
-        Set<String> itemTags = TagHelper.tags(stack);
-
-        Set<String> fluidTags = null;
-        if (stack.hasCapability(CapabilityFluidHandler.FLUID_HANDLER_ITEM_CAPABILITY, null)) {
-            var fluidHandler = stack.getCapability(CapabilityFluidHandler.FLUID_HANDLER_ITEM_CAPABILITY, null);
-            if (fluidHandler != null) {
-                var fluid = fluidHandler.drain(Integer.MAX_VALUE, false);
-                if (fluid != null && fluid.amount > 0) {
-                    fluidTags = TagHelper.tags(fluid);
-                }
-            }
+        long generation = TagEvents.generation();
+        if (generation != cachedGeneration) {
+            ITEM_LINES.clear();
+            FLUID_LINES.clear();
+            linesBytes = 0;
+            cachedGeneration = generation;
         }
 
-        Set<String> blockTags = null;
-        var block = Block.getBlockFromItem(stack.getItem());
+        var key = ItemKey.toKey(stack);
+        if (key == null) {
+            return;
+        }
 
-        if (block != Blocks.AIR) {
-            blockTags = TagHelper.tags(block);
+        var itemLines = ITEM_LINES.get(key);
+        if (itemLines == null) {
+            itemLines = itemLines(stack);
+            cache(ITEM_LINES, key, itemLines, TagMemory.ITEM_KEY + TagMemory.align(TagMemory.HEADER + 2 * TagMemory.REF)
+                    + bytes(itemLines.item()) + bytes(itemLines.block()));
         }
 
-        boolean hasItemTags = !itemTags.isEmpty();
-        boolean hasFluidTags = fluidTags != null && !fluidTags.isEmpty();
-        boolean hasBlockTags = blockTags != null && !blockTags.isEmpty();
+        String[] fluidLines = NO_LINES;
+        var fluid = containedFluid(stack);
+        if (fluid != null) {
+            fluidLines = FLUID_LINES.get(fluid.getFluid());
+            if (fluidLines == null) {
+                fluidLines = lines(TagHelper.sortedTags(fluid), TextFormatting.BLUE);
+                cache(FLUID_LINES, fluid.getFluid(), fluidLines, bytes(fluidLines));
+            }
+        }
 
-        if (!hasItemTags && !hasFluidTags && !hasBlockTags) {
+        if (itemLines.item().length == 0 && fluidLines.length == 0 && itemLines.block().length == 0) {
             return;
         }
 
         tooltip.add("Tags:");
-        if (hasItemTags) {
-            itemTags.stream().sorted().map(tag -> TextFormatting.WHITE + "  " + tag).forEach(tooltip::add);
+        addAll(tooltip, itemLines.item());
+        addAll(tooltip, fluidLines);
+        addAll(tooltip, itemLines.block());
+    }
+
+    /**
+     * The fluid inside a container item, probed only while fluid tags exist
+     */
+    @Nullable
+    private static FluidStack containedFluid(ItemStack stack) {
+        if (TagManager.FLUID.getAllTag().isEmpty() || !stack.hasCapability(CapabilityFluidHandler.FLUID_HANDLER_ITEM_CAPABILITY, null)) {
+            return null;
+        }
+
+        var fluidHandler = stack.getCapability(CapabilityFluidHandler.FLUID_HANDLER_ITEM_CAPABILITY, null);
+        if (fluidHandler == null) {
+            return null;
+        }
+
+        var fluid = fluidHandler.drain(Integer.MAX_VALUE, false);
+        return fluid != null && fluid.amount > 0 && fluid.getFluid() != null ? fluid : null;
+    }
+
+    private static ItemLines itemLines(ItemStack stack) {
+        var block = Block.getBlockFromItem(stack.getItem());
+        var blockLines = block != Blocks.AIR ? lines(TagHelper.sortedTags(block), TextFormatting.YELLOW) : NO_LINES;
+        return new ItemLines(lines(TagHelper.sortedTags(stack), TextFormatting.WHITE), blockLines);
+    }
+
+    private static String[] lines(List<String> sortedTags, TextFormatting color) {
+        if (sortedTags.isEmpty()) {
+            return NO_LINES;
+        }
+
+        var lines = new String[sortedTags.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = color + "  " + sortedTags.get(i);
+        }
+        return lines;
+    }
+
+    private static <K, V> void cache(Map<K, V> cache, K key, V value, long bytes) {
+        if (cache.size() >= MAX_CACHED) {
+            // both maps go, so the byte count starts over with them
+            ITEM_LINES.clear();
+            FLUID_LINES.clear();
+            linesBytes = 0;
+        }
+        cache.put(key, value);
+        linesBytes += bytes;
+    }
+
+    private static long bytes(String[] lines) {
+        if (lines == NO_LINES) {
+            return 0;
         }
 
-        if (hasFluidTags) {
-            fluidTags.stream().sorted().map(tag -> TextFormatting.BLUE + "  " + tag).forEach(tooltip::add);
+        long bytes = TagMemory.array(lines.length, TagMemory.REF);
+        for (var line : lines) {
+            bytes += TagMemory.string(line);
         }
+        return bytes;
+    }
+
+    /**
+     * Estimated bytes of the cached tooltip lines, with both tables at their current size
+     */
+    static long estimateBytes() {
+        return linesBytes + TagMemory.hashTable(ITEM_LINES.size(), TagMemory.REF) + TagMemory.hashTable(FLUID_LINES.size(), TagMemory.REF);
+    }
 
-        if (hasBlockTags) {
-            blockTags.stream().sorted().map(tag -> TextFormatting.YELLOW + "  " + tag).forEach(tooltip::add);
+    private static void addAll(List<String> tooltip, String[] lines) {
+        for (var line : lines) {
+            tooltip.add(line);
         }
     }
+
+    @Desugar
+    private record ItemLines(String[] item, String[] block) {}
 }
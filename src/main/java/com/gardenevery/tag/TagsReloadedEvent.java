@@ -0,0 +1,26 @@
+package com.gardenevery.tag;
+
+import net.minecraftforge.fml.common.eventhandler.Event;
+
+/**
+ * Posted on {@code MinecraftForge.EVENT_BUS}, on the server thread, after {@code /tag reload} has published
+ * the new tags. Results derived from tags should be recomputed.
+ */
+public class TagsReloadedEvent extends Event {
+
+    private final int tagCount;
+    private final long elapsedMillis;
+
+    public TagsReloadedEvent(int tagCount, long elapsedMillis) {
+        this.tagCount = tagCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,184 @@
+package com.gardenevery.tag;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.tileentity.TileEntity;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Tile entity lookups that never read the world.
+ * <p>
+ * A tile entity's tags are the tags of its block state, taken from the block and metadata vanilla already
+ * caches on the tile, plus the tags registered for its class or any superclass in {@link TagManager#TILE_ENTITY}.
+ * Class tags are resolved once per concrete class and cached until the class store changes.
+ */
+final class TileEntityIndex {
+
+    private static volatile TileEntityIndex current;
+
+    private final TagSnapshot<Class<? extends TileEntity>> snapshot;
+    private final ConcurrentHashMap<Class<?>, Set<String>> classTags = new ConcurrentHashMap<>();
+
+    private TileEntityIndex(TagSnapshot<Class<? extends TileEntity>> snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    static TileEntityIndex of(@Nonnull TagSnapshot<Class<? extends TileEntity>> snapshot) {
+        var index = current;
+        if (index == null || index.snapshot != snapshot) {
+            index = new TileEntityIndex(snapshot);
+            current = index;
+        }
+        return index;
+    }
+
+    /**
+     * Estimated bytes of the class tags cached for the current snapshot, counting each cached set as a view
+     */
+    static long estimateBytes() {
+        var index = current;
+        if (index == null || index.snapshot != TagManager.TILE_ENTITY.snapshot()) {
+            return 0;
+        }
+
+        int size = index.classTags.size();
+        // ConcurrentHashMap nodes hold hash, key, value and next
+        return TagMemory.array(HashCommon.nextPowerOfTwo(Math.max(size * 4 / 3 + 1, 16)), TagMemory.REF)
+                + (long) size * (TagMemory.align(TagMemory.HEADER + 4 + 3 * TagMemory.REF) + 2 * TagMemory.align(TagMemory.HEADER + 2 * TagMemory.REF));
+    }
+
+    /**
+     * The tile's block state from its cached block type and metadata, or null if it has none yet
+     */
+    @Nullable
+    static IBlockState blockState(@Nonnull TileEntity tileEntity) {
+        var block = tileEntity.getBlockType();
+        if (block == null) {
+            return null;
+        }
+        return tileEntity.hasWorld() ? block.getStateFromMeta(tileEntity.getBlockMetadata()) : block.getDefaultState();
+    }
+
+    /**
+     * Tags registered for a tile entity class or any of its superclasses
+     */
+    static Set<String> classTags(@Nonnull Class<? extends TileEntity> type) {
+        var snapshot = TagManager.TILE_ENTITY.snapshot();
+        if (snapshot == null) {
+            return collect(type, TagManager.TILE_ENTITY::getTag);
+        }
+
+        var index = of(snapshot);
+        var tags = index.classTags.get(type);
+        if (tags == null) {
+            tags = index.classTags.computeIfAbsent(type, c -> collect(c, snapshot::getTag));
+        }
+        return tags;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> collect(Class<?> type, Function<Class<? extends TileEntity>, Set<String>> lookup) {
+        Set<String> result = Collections.emptySet();
+        ObjectOpenHashSet<String> merged = null;
+
+        for (var c = type; c != null && TileEntity.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            var tags = lookup.apply((Class<? extends TileEntity>) c);
+            if (tags.isEmpty()) {
+                continue;
+            }
+
+            if (result.isEmpty()) {
+                result = tags;
+            } else {
+                if (merged == null) {
+                    merged = new ObjectOpenHashSet<>(result);
+                    result = Collections.unmodifiableSet(merged);
+                }
+                merged.addAll(tags);
+            }
+        }
+        return result;
+    }
+
+    static Set<String> getTag(@Nonnull TileEntity tileEntity) {
+        var blockState = blockState(tileEntity);
+        var blockTags = blockState == null ? Collections.<String>emptySet() : BlockStateIndex.getTag(blockState);
+        var classTags = classTags(tileEntity.getClass());
+        if (classTags.isEmpty()) {
+            return blockTags;
+        }
+        if (blockTags.isEmpty()) {
+            return classTags;
+        }
+
+        var tags = new ObjectOpenHashSet<>(blockTags);
+        tags.addAll(classTags);
+        return Collections.unmodifiableSet(tags);
+    }
+
+    static List<String> sortedTags(@Nonnull TileEntity tileEntity) {
+        var blockState = blockState(tileEntity);
+        var blockTags = blockState == null ? Collections.<String>emptyList() : BlockStateIndex.sortedTags(blockState);
+        var classTags = classTags(tileEntity.getClass());
+        if (classTags.isEmpty()) {
+            return blockTags;
+        }
+
+        var sortedClassTags = new ObjectArrayList<>(classTags);
+        Collections.sort(sortedClassTags);
+        return TagSnapshot.mergeSorted(blockTags, sortedClassTags);
+    }
+
+    static boolean hasTag(@Nonnull TileEntity tileEntity, @Nonnull String tagName) {
+        if (classTags(tileEntity.getClass()).contains(tagName)) {
+            return true;
+        }
+
+        var blockState = blockState(tileEntity);
+        return blockState != null && BlockStateIndex.hasTag(blockState, tagName);
+    }
+
+    static boolean hasAnyTag(@Nonnull TileEntity tileEntity, @Nonnull Set<String> tagNames) {
+        var classTags = classTags(tileEntity.getClass());
+        if (!classTags.isEmpty()) {
+            for (var tagName : tagNames) {
+                if (classTags.contains(tagName)) {
+                    return true;
+                }
+            }
+        }
+
+        var blockState = blockState(tileEntity);
+        return blockState != null && BlockStateIndex.hasAnyTag(blockState, tagNames);
+    }
+
+    static boolean hasAllTags(@Nonnull TileEntity tileEntity, @Nonnull Set<String> tagNames) {
+        var classTags = classTags(tileEntity.getClass());
+        var blockState = blockState(tileEntity);
+        for (var tagName : tagNames) {
+            if (!classTags.contains(tagName) && (blockState == null || !BlockStateIndex.hasTag(blockState, tagName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean containsKey(@Nonnull TileEntity tileEntity) {
+        if (!classTags(tileEntity.getClass()).isEmpty()) {
+            return true;
+        }
+
+        var blockState = blockState(tileEntity);
+        return blockState != null && BlockStateIndex.containsKey(blockState);
+    }
+}
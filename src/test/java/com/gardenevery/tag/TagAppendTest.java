@@ -0,0 +1,99 @@
+package com.gardenevery.tag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * A batch adding to existing tags of a frozen store must publish the same tags as a full rebuild while
+ * sharing the rows it did not change
+ */
+class TagAppendTest {
+
+    private static Tag<String> store() {
+        var tag = new Tag<String>();
+        tag.createTag("ingotIron", "iron");
+        tag.createTag("ingotGold", "gold");
+        tag.createTag("gems", "diamond");
+        tag.createTag("ingots", "brick");
+        tag.includeTag(Collections.singleton("ingots"), "ingotGold");
+        tag.freeze();
+        return tag;
+    }
+
+    @Test
+    void appendSharesUntouchedRows() {
+        var tag = store();
+        var before = tag.snapshot();
+
+        var entries = new Object2ReferenceOpenHashMap<String, List<String>>();
+        entries.put("ingotIron", Arrays.asList("wroughtIron", "iron", "wroughtIron"));
+        entries.put("gems", Collections.singletonList("gold"));
+        tag.addAll(entries);
+
+        var after = tag.snapshot();
+        assertSame(before.lineage, after.lineage);
+        assertSame(before.tagKeys[before.tagId("ingotGold")], after.tagKeys[after.tagId("ingotGold")]);
+        assertSame(before.keyTags[before.keyId("diamond")], after.keyTags[after.keyId("diamond")]);
+        assertEquals(before.keyId("gold"), after.keyId("gold"));
+
+        assertEquals(set("iron", "wroughtIron"), tag.getKey("ingotIron"));
+        assertEquals(set("diamond", "gold"), tag.getKey("gems"));
+        assertEquals(set("ingotGold", "ingots", "gems"), tag.getTag("gold"));
+        assertEquals(before.associations + 2, after.associations);
+    }
+
+    @Test
+    void appendedSnapshotMatchesRebuild() {
+        var tag = store();
+        tag.batch().addAll("ingotIron", Arrays.asList("castIron", "wroughtIron")).commit();
+        tag.batch().addAll("gems", Collections.singletonList("emerald")).commit();
+
+        var appended = tag.snapshot();
+        var rebuilt = tag.copy();
+        rebuilt.freeze();
+        for (var tagName : rebuilt.getAllTag()) {
+            assertEquals(rebuilt.getKey(tagName), tag.getKey(tagName));
+            assertTrue(appended.sameKeys(appended.tagId(tagName), rebuilt.snapshot()));
+        }
+        for (var key : rebuilt.getAllKey()) {
+            assertEquals(rebuilt.getTag(key), tag.getTag(key));
+        }
+    }
+
+    @Test
+    void nestedOrNewTagsTakeTheFullPath() {
+        var tag = store();
+        var before = tag.snapshot();
+        tag.batch().addAll("ingotGold", Collections.singletonList("roseGold")).commit();
+        assertNotSame(before.lineage, tag.snapshot().lineage);
+        assertTrue(tag.hasTag("roseGold", "ingots"));
+
+        before = tag.snapshot();
+        tag.batch().addAll("dusts", Collections.singletonList("redstone")).commit();
+        assertNotSame(before.lineage, tag.snapshot().lineage);
+        assertTrue(tag.hasTag("redstone", "dusts"));
+    }
+
+    @Test
+    void repeatedKeysPublishNothing() {
+        var tag = store();
+        var before = tag.snapshot();
+        tag.batch().addAll("ingotIron", Collections.singletonList("iron")).commit();
+        assertSame(before, tag.snapshot());
+    }
+
+    private static ObjectOpenHashSet<String> set(String... values) {
+        return new ObjectOpenHashSet<>(values);
+    }
+}
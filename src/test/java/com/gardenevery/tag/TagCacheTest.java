@@ -0,0 +1,117 @@
+package com.gardenevery.tag;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Stores must survive a cache round trip with their nested tag references, and the fingerprint must follow
+ * the contents of {@code config/tag} and of the tags registered from code
+ */
+class TagCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storeRoundTripKeepsReferences() {
+        var source = new Tag<String>();
+        source.createTag("ingotIron", "iron");
+        source.createTag("ingots", "brick");
+        source.includeTag(Collections.singleton("ingots"), "ingotIron");
+        source.includeTag(Collections.singleton("metals"), "ingots");
+        source.freeze();
+
+        var out = new TagCodec.Output();
+        TagCache.writeStore(out, source, TagCodecTest.STRING_CODEC);
+        var target = new Tag<String>();
+        target.publish(TagCache.readStore(TagCodecTest.input(out), TagCodecTest.STRING_CODEC));
+
+        assertArrayEquals(source.snapshot().names, target.snapshot().names);
+        assertEquals(source.getTag("iron"), target.getTag("iron"));
+        assertEquals(source.getKey("metals"), target.getKey("metals"));
+
+        target.createTag("ingotIron", "wroughtIron");
+        assertTrue(target.hasTag("wroughtIron", "metals"));
+        target.removeTagKey("ingots", "brick");
+        assertFalse(target.hasTag("brick", "metals"));
+        assertTrue(target.hasTag("iron", "ingots"));
+    }
+
+    @Test
+    void missingKeysRejectTheCache() {
+        var source = new Tag<String>();
+        source.createTag("ores", "removedOre");
+        source.freeze();
+
+        var out = new TagCodec.Output();
+        TagCache.writeStore(out, source, TagCodecTest.STRING_CODEC);
+        assertThrows(IllegalStateException.class, () -> TagCache.readStore(TagCodecTest.input(out), TagCodecTest.STRING_CODEC));
+    }
+
+    @Test
+    void fileHashFollowsContentOnly() throws IOException {
+        var file = dir.resolve("data/minecraft/tags/items/logs.json");
+        Files.createDirectories(file.getParent());
+        Files.write(file, "{\"values\": []}".getBytes(StandardCharsets.UTF_8));
+        var original = hash();
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        Files.write(dir.resolve(TagCache.FILE_NAME), new byte[] {1, 2, 3});
+        assertArrayEquals(original, hash());
+
+        Files.write(file, "{\"values\": [\"minecraft:log\"]}".getBytes(StandardCharsets.UTF_8));
+        assertFalse(MessageDigest.isEqual(original, hash()));
+    }
+
+    @Test
+    void storeHashFollowsRegisteredTags() throws IOException {
+        var first = new Tag<String>();
+        first.createTag("ingots", "iron");
+        first.createTag("ingots", "gold");
+        first.includeTag(Collections.singleton("metals"), "ingots");
+
+        var second = new Tag<String>();
+        second.includeTag(Collections.singleton("metals"), "ingots");
+        second.createTag("ingots", "gold");
+        second.createTag("ingots", "iron");
+        assertArrayEquals(storeHash(first), storeHash(second));
+
+        second.createTag("ingots", "copper");
+        assertFalse(MessageDigest.isEqual(storeHash(first), storeHash(second)));
+    }
+
+    private static byte[] storeHash(Tag<String> store) throws IOException {
+        try {
+            var digest = MessageDigest.getInstance("SHA-1");
+            TagCache.hashStore(digest, store, TagCodecTest.STRING_CODEC);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private byte[] hash() throws IOException {
+        try {
+            var digest = MessageDigest.getInstance("SHA-1");
+            TagCache.hashFiles(digest, dir);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+}
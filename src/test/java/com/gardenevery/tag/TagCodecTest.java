@@ -0,0 +1,115 @@
+package com.gardenevery.tag;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * A section written by {@link TagCodec} must read back to the same tags and keys
+ */
+class TagCodecTest {
+
+    static final TagCodec.KeyCodec<String> STRING_CODEC = new TagCodec.KeyCodec<String>() {
+        @Override
+        public void write(String key, TagCodec.Output out) {
+            out.string(key);
+        }
+
+        @Override
+        public String read(TagCodec.Input in) {
+            var key = in.string();
+            return key.startsWith("removed") ? null : key;
+        }
+    };
+
+    private static TagSnapshot<String> snapshot() {
+        var tag = new Tag<String>();
+        tag.createTag(new ObjectOpenHashSet<>(new String[] {"ingots", "metal"}), "iron");
+        tag.createTag("ingots", "brick");
+        tag.createTag("gems", "diamond");
+        for (int i = 0; i < 300; i++) {
+            tag.createTag("filler", "filler" + i);
+        }
+        tag.freeze();
+        return tag.snapshot();
+    }
+
+    @Test
+    void allTagsRoundTrip() {
+        var snapshot = snapshot();
+        var out = new TagCodec.Output();
+        TagCodec.writeAllTags(out, snapshot, STRING_CODEC);
+        var section = TagCodec.readTags(input(out), STRING_CODEC);
+
+        var read = TagSnapshot.<String>of(section.names(), section.keys(), section.tagKeys());
+        assertArrayEquals(snapshot.names, read.names);
+        for (var tagName : snapshot.names) {
+            assertEquals(keys(snapshot, tagName), keys(read, tagName));
+        }
+    }
+
+    @Test
+    void selectedTagsCarryOnlyTheirKeys() {
+        var snapshot = snapshot();
+        var out = new TagCodec.Output();
+        TagCodec.writeTags(out, snapshot, new int[] {snapshot.tagId("gems"), snapshot.tagId("ingots")}, STRING_CODEC);
+        var section = TagCodec.readTags(input(out), STRING_CODEC);
+
+        assertEquals(3, section.keys().length);
+        assertArrayEquals(new String[] {"gems", "ingots"}, section.names());
+        var read = TagSnapshot.<String>of(section.names(), section.keys(), section.tagKeys());
+        assertEquals(Collections.singleton("diamond"), keys(read, "gems"));
+        assertEquals(new ObjectOpenHashSet<>(new String[] {"iron", "brick"}), keys(read, "ingots"));
+    }
+
+    @Test
+    void unknownKeysReadAsNull() {
+        var tag = new Tag<String>();
+        tag.createTag("ores", "removedOre");
+        tag.createTag("ores", "copperOre");
+        tag.freeze();
+
+        var out = new TagCodec.Output();
+        TagCodec.writeAllTags(out, tag.snapshot(), STRING_CODEC);
+        var section = TagCodec.readTags(input(out), STRING_CODEC);
+        int nulls = 0;
+        for (var key : section.keys()) {
+            if (key == null) {
+                nulls++;
+            }
+        }
+        assertEquals(1, nulls);
+    }
+
+    @Test
+    void varIntsRoundTrip() {
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        var out = new TagCodec.Output();
+        for (int value : values) {
+            out.varInt(TagCodec.zigZag(value));
+        }
+
+        var in = input(out);
+        for (int value : values) {
+            assertEquals(value, TagCodec.unZigZag(in.varInt()));
+        }
+    }
+
+    static TagCodec.Input input(TagCodec.Output out) {
+        return new TagCodec.Input(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static ObjectOpenHashSet<String> keys(TagSnapshot<String> snapshot, String tagName) {
+        var keys = new ObjectOpenHashSet<String>();
+        for (int keyId : snapshot.tagKeys[snapshot.tagId(tagName)]) {
+            keys.add(snapshot.key(keyId));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,164 @@
+package com.gardenevery.tag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import it.unimi.dsi.fastutil.objects.Object2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Readers on many threads must always see one complete snapshot while snapshots are swapped and copied on write
+ */
+class TagConcurrencyTest {
+
+    private static final int READERS = 8;
+    private static final int SWAPS = 2000;
+    private static final String KEY = "key";
+    private static final String OTHER = "other";
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(READERS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void readersSeeCompleteSnapshotsWhilePublishing() throws InterruptedException {
+        var first = snapshot("first");
+        var second = snapshot("second");
+        var tag = new Tag<String>();
+        tag.publish(first);
+
+        var result = read(tag, () -> {
+            for (int i = 0; i < SWAPS; i++) {
+                tag.publish(i % 2 == 0 ? second : first);
+            }
+        }, TagConcurrencyTest::checkSwap);
+
+        assertNull(result.failure.get(), () -> String.valueOf(result.failure.get()));
+        assertTrue(result.reads.get() > 0);
+        assertEquals(SWAPS + 1, tag.generation());
+    }
+
+    @Test
+    void readersSeeCompleteSnapshotsWhileMutatingAfterFreeze() throws InterruptedException {
+        var tag = new Tag<String>();
+        tag.createTag(new ObjectOpenHashSet<>(new String[] {"shared", "first"}), KEY);
+        tag.freeze();
+
+        var result = read(tag, () -> {
+            for (int i = 0; i < SWAPS; i++) {
+                if (i % 2 == 0) {
+                    tag.createTag("toggle", OTHER);
+                } else {
+                    tag.removeTagKey("toggle", OTHER);
+                }
+            }
+        }, TagConcurrencyTest::checkToggle);
+
+        assertNull(result.failure.get(), () -> String.valueOf(result.failure.get()));
+        assertTrue(result.reads.get() > 0);
+        assertEquals(SWAPS + 1, tag.generation());
+        assertFalse(tag.containsKey(OTHER));
+    }
+
+    /**
+     * Run {@code writer} on this thread while readers check every snapshot they see, until the writer is done
+     */
+    private Result read(Tag<String> tag, Runnable writer, Consumer<Tag<String>> check) throws InterruptedException {
+        var result = new Result();
+        var done = new AtomicBoolean();
+        var ready = new CountDownLatch(READERS);
+        var finished = new CountDownLatch(READERS);
+
+        for (int i = 0; i < READERS; i++) {
+            executor.execute(() -> {
+                ready.countDown();
+                try {
+                    while (!done.get() && result.failure.get() == null) {
+                        check.accept(tag);
+                        result.reads.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    result.failure.compareAndSet(null, t);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+        try {
+            writer.run();
+        } finally {
+            done.set(true);
+        }
+        assertTrue(finished.await(30, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static void checkSwap(Tag<String> tag) {
+        assertTrue(tag.hasTag(KEY, "shared"));
+        assertTrue(tag.containsKey(KEY));
+
+        var snapshot = tag.snapshot();
+        boolean first = snapshot.hasTag(KEY, "first");
+        boolean second = snapshot.hasTag(KEY, "second");
+        if (first == second) {
+            throw new AssertionError("Key in " + (first ? "both tags" : "neither tag") + " of one snapshot");
+        }
+
+        var tags = tag.getTag(KEY);
+        assertTrue(tags.contains("shared"));
+        assertEquals(2, tags.size(), tags::toString);
+        assertEquals(tags.size(), tag.getSortedTag(KEY).size());
+    }
+
+    private static void checkToggle(Tag<String> tag) {
+        assertTrue(tag.hasTag(KEY, "first"));
+        assertEquals(2, tag.getTag(KEY).size());
+
+        var snapshot = tag.snapshot();
+        boolean member = snapshot.hasTag(OTHER, "toggle");
+        assertEquals(member, snapshot.containsKey(OTHER));
+        assertEquals(member, snapshot.doesTagExist("toggle"));
+        assertEquals(member, snapshot.getKey("toggle").contains(OTHER));
+        assertEquals(member ? 3 : 2, snapshot.getAssociations());
+    }
+
+    private static TagSnapshot<String> snapshot(String tagName) {
+        Map<String, Set<String>> tagToKeys = new Object2ReferenceOpenHashMap<>();
+        tagToKeys.put("shared", new ObjectOpenHashSet<>(new String[] {KEY}));
+        tagToKeys.put(tagName, new ObjectOpenHashSet<>(new String[] {KEY}));
+        return TagSnapshot.of(tagToKeys);
+    }
+
+    private static final class Result {
+        final AtomicLong reads = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+    }
+}
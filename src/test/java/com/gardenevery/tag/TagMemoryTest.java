@@ -0,0 +1,52 @@
+package com.gardenevery.tag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The estimates must follow what a store actually holds
+ */
+class TagMemoryTest {
+
+    @Test
+    void estimateGrowsWithEntries() {
+        var small = new Tag<String>();
+        small.createTag("ingots", "iron");
+        small.freeze();
+
+        var large = new Tag<String>();
+        for (int i = 0; i < 200; i++) {
+            large.createTag("ingots", "ingot" + i);
+        }
+        large.freeze();
+
+        var smallEstimate = TagMemory.estimate("small", small.snapshot(), 0);
+        var largeEstimate = TagMemory.estimate("large", large.snapshot(), 0);
+        assertEquals(1, smallEstimate.associations());
+        assertEquals(200, largeEstimate.keys());
+        assertTrue(largeEstimate.total() > smallEstimate.total());
+        assertTrue(largeEstimate.total() >= largeEstimate.compact());
+    }
+
+    @Test
+    void referencesAreCountedOnlyWhenKept() {
+        var plain = new Tag<String>();
+        plain.createTag("ingotIron", "iron");
+        plain.freeze();
+
+        var nested = new Tag<String>();
+        nested.createTag("ingotIron", "iron");
+        nested.includeTag(Collections.singleton("ingots"), "ingotIron");
+        nested.freeze();
+
+        long empty = plain.estimateReferenceBytes();
+        assertTrue(nested.estimateReferenceBytes() > empty);
+
+        nested.publish(nested.snapshot());
+        assertEquals(empty, nested.estimateReferenceBytes());
+    }
+}
@@ -0,0 +1,123 @@
+package com.gardenevery.tag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Nested tags are flattened at freeze and must stay flattened through later changes to a frozen store
+ */
+class TagNestingTest {
+
+    private static Tag<String> store() {
+        var tag = new Tag<String>();
+        tag.createTag("ingotIron", "iron");
+        tag.createTag("ingots", "brick");
+        tag.includeTag(Collections.singleton("ingots"), "ingotIron");
+        tag.includeTag(Collections.singleton("metals"), "ingots");
+        tag.freeze();
+        return tag;
+    }
+
+    @Test
+    void flattensAtFreeze() {
+        var tag = store();
+        assertEquals(set("iron", "brick"), tag.getKey("ingots"));
+        assertEquals(set("iron", "brick"), tag.getKey("metals"));
+        assertEquals(set("ingotIron", "ingots", "metals"), tag.getTag("iron"));
+    }
+
+    @Test
+    void additionReachesParentsAfterFreeze() {
+        var tag = store();
+        tag.createTag("ingotIron", "wroughtIron");
+        assertTrue(tag.hasTag("wroughtIron", "ingots"));
+        assertTrue(tag.hasTag("wroughtIron", "metals"));
+
+        var batch = tag.batch();
+        batch.addAll("ingotIron", Collections.singletonList("castIron"));
+        batch.commit();
+        assertTrue(tag.hasTag("castIron", "metals"));
+    }
+
+    @Test
+    void removalReachesParentsAfterFreeze() {
+        var tag = store();
+        tag.removeTagKey("ingotIron", "iron");
+        assertFalse(tag.hasTag("iron", "ingots"));
+        assertFalse(tag.hasTag("iron", "metals"));
+        assertFalse(tag.containsKey("iron"));
+        assertEquals(set("brick"), tag.getKey("metals"));
+    }
+
+    @Test
+    void ownKeysSurviveNestedRemoval() {
+        var tag = store();
+        tag.createTag("ingotIron", "brick");
+        tag.removeTag("ingotIron");
+        assertEquals(set("brick"), tag.getKey("ingots"));
+        assertTrue(tag.hasTag("brick", "metals"));
+    }
+
+    @Test
+    void includeAfterFreeze() {
+        var tag = store();
+        tag.createTag("gems", "diamond");
+        tag.includeTag(Collections.singleton("valuables"), "gems");
+        tag.includeTag(Collections.singleton("valuables"), "ingotIron");
+        assertEquals(set("diamond", "iron"), tag.getKey("valuables"));
+
+        tag.createTag("gems", "emerald");
+        assertTrue(tag.hasTag("emerald", "valuables"));
+    }
+
+    @Test
+    void publishedReferencesTravelWithTheSnapshot() {
+        var source = store();
+        var target = new Tag<String>();
+        target.publish(source.published());
+        target.createTag("ingotIron", "wroughtIron");
+        assertTrue(target.hasTag("wroughtIron", "metals"));
+
+        var copy = source.copy();
+        copy.createTag("ingotIron", "castIron");
+        copy.freeze();
+        assertTrue(copy.hasTag("castIron", "metals"));
+        assertFalse(source.hasTag("castIron", "metals"));
+    }
+
+    @Test
+    void plainSnapshotDropsReferences() {
+        var source = store();
+        var target = new Tag<String>();
+        target.publish(source.snapshot());
+        target.createTag("ingotIron", "wroughtIron");
+        assertTrue(target.hasTag("iron", "metals"));
+        assertFalse(target.hasTag("wroughtIron", "metals"));
+    }
+
+    @Test
+    void cycleIsBroken() {
+        var tag = new Tag<String>();
+        tag.createTag("a", "x");
+        tag.createTag("b", "y");
+        tag.includeTag(Collections.singleton("a"), "b");
+        tag.includeTag(Collections.singleton("b"), "a");
+        tag.freeze();
+        assertTrue(tag.hasTag("y", "a") || tag.hasTag("x", "b"));
+
+        tag.createTag("b", "z");
+        assertTrue(tag.hasTag("z", "b"));
+    }
+
+    private static Set<String> set(String... values) {
+        return new ObjectOpenHashSet<>(values);
+    }
+}
@@ -0,0 +1,84 @@
+package com.gardenevery.tag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * The bitset set operations of a frozen store must give the same keys as the hash set operations before freezing
+ */
+class TagQueryTest {
+
+    private static Tag<String> store(boolean freeze) {
+        var tag = new Tag<String>();
+        tag.createTag(set("ingots", "metal"), "iron");
+        tag.createTag(set("ingots", "metal"), "gold");
+        tag.createTag(set("ingots"), "brick");
+        tag.createTag(set("metal", "radioactive"), "uranium");
+        tag.createTag(set("gems"), "diamond");
+        // push keys past one 64-bit word so the bitsets span several words
+        for (int i = 0; i < 100; i++) {
+            tag.createTag(i % 2 == 0 ? "even" : "odd", "filler" + i);
+        }
+
+        if (freeze) {
+            tag.freeze();
+        }
+        return tag;
+    }
+
+    @Test
+    void intersect() {
+        for (var tag : Arrays.asList(store(false), store(true))) {
+            assertEquals(set("iron", "gold"), TagQuery.intersect(tag, "ingots", "metal"));
+            assertEquals(set("iron", "gold", "brick"), TagQuery.intersect(tag, "ingots"));
+            assertTrue(TagQuery.intersect(tag, "ingots", "gems").isEmpty());
+            assertTrue(TagQuery.intersect(tag, "ingots", "missing").isEmpty());
+            assertTrue(TagQuery.intersect(tag).isEmpty());
+        }
+    }
+
+    @Test
+    void union() {
+        for (var tag : Arrays.asList(store(false), store(true))) {
+            assertEquals(set("iron", "gold", "brick", "diamond"), TagQuery.union(tag, "ingots", "gems"));
+            assertEquals(set("diamond"), TagQuery.union(tag, "gems", "missing"));
+            assertEquals(100, TagQuery.union(tag, "even", "odd").size());
+            assertTrue(TagQuery.union(tag).isEmpty());
+        }
+    }
+
+    @Test
+    void difference() {
+        for (var tag : Arrays.asList(store(false), store(true))) {
+            assertEquals(set("iron", "gold"), TagQuery.difference(tag, "metal", "radioactive"));
+            assertEquals(set("brick"), TagQuery.difference(tag, "ingots", "metal", "missing"));
+            assertEquals(set("iron", "gold", "uranium"), TagQuery.difference(tag, "metal"));
+            assertTrue(TagQuery.difference(tag, "missing", "metal").isEmpty());
+        }
+    }
+
+    @Test
+    void frozenMatchesMutable() {
+        var mutable = store(false);
+        var frozen = store(true);
+        String[] names = {"even", "odd", "ingots", "metal"};
+        for (var first : names) {
+            for (var second : names) {
+                assertEquals(TagQuery.intersect(mutable, first, second), TagQuery.intersect(frozen, first, second));
+                assertEquals(TagQuery.union(mutable, first, second), TagQuery.union(frozen, first, second));
+                assertEquals(TagQuery.difference(mutable, first, second), TagQuery.difference(frozen, first, second));
+            }
+        }
+    }
+
+    private static Set<String> set(String... values) {
+        return new ObjectOpenHashSet<>(values);
+    }
+}